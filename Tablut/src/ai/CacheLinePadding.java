@@ -0,0 +1,16 @@
+package ai;
+
+/**
+ * Padding before the fields written by a search thread at every node. The fields of a superclass are laid
+ * out before the ones of its subclasses, so the fields of a subclass never share a cache line with the
+ * object allocated before it. The subclass which ends a hierarchy declares the padding after them.
+ */
+abstract class CacheLinePadding {
+
+	/*
+	 * A cache line is at most 64 bytes. The int fills the gap after a compressed object header, where the
+	 * JVM would otherwise move the first int of a subclass
+	 */
+	long p0, p1, p2, p3, p4, p5, p6, p7;
+	int p8;
+}
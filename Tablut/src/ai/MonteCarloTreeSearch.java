@@ -0,0 +1,441 @@
+package ai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import aima.core.search.adversarial.AdversarialSearch;
+import aima.core.search.framework.Metrics;
+
+import domain.Action;
+import domain.Board;
+import domain.GameContext;
+import domain.Move;
+import domain.State;
+import domain.TablutGame;
+import domain.State.Turn;
+
+/**
+ * Parallel Monte Carlo tree search, an alternative to the alpha-beta searches for the states where too
+ * many moves make them shallow.
+ * <p>
+ * Every thread repeats simulations on its own copy of the root: it descends the shared tree choosing the
+ * children with PUCT (the average reward plus an exploration term weighted by a prior of the move),
+ * expands the leaf after a few visits and plays a short random game from it, which is cut after
+ * PLAYOUT_DEPTH plies and valued by Score. The rewards go back up the path, seen by the player who made
+ * each move.
+ * <p>
+ * The tree is a pool of nodes allocated once, as parallel arrays indexed by node: the children of a node
+ * are contiguous. The threads share it without locks: a node being visited counts as a lost visit
+ * (virtual loss) until its simulation ends, so the other threads choose different paths.
+ * <p>
+ * The search has no iterations to stop between, every simulation makes the result more reliable: the
+ * simulations go on until the hard deadline of the TimeManager, then the move of the root with the most
+ * visits is chosen. Maximal computation time is specified in seconds.
+ */
+public class MonteCarloTreeSearch implements AdversarialSearch<State, Action> {
+
+	/**
+	 * Default size of the node pool in megabytes
+	 */
+	public static final int DEFAULT_TREE_SIZE = 128;
+	/**
+	 * Bytes of a node in the pool: move, prior, number of children, first child, visits and sum of the rewards
+	 */
+	private static final int NODE_BYTES = 28;
+	/**
+	 * Weight of the exploration term of PUCT
+	 */
+	private static final double EXPLORATION = 1.5;
+	/**
+	 * Visits of a leaf before it is expanded, the root is always expanded
+	 */
+	private static final int EXPAND_VISITS = 4;
+	/**
+	 * Plies of a random game before it is valued by Score
+	 */
+	private static final int PLAYOUT_DEPTH = 8;
+	/**
+	 * Score which corresponds to a reward of about 0.76, the heuristic scores are squashed in (-1, 1)
+	 */
+	private static final double SCORE_SCALE = 20;
+	/**
+	 * The rewards are summed in fixed point, so that they can be added atomically
+	 */
+	private static final long ONE = 1 << 16;
+	/**
+	 * First child of a node being expanded, or which can't be expanded because the pool is full
+	 */
+	private static final int EXPANDING = -1;
+	/**
+	 * Simulations of a thread between two readings of the clock
+	 */
+	private static final int CHECK_INTERVAL = 64;
+	/**
+	 * Priors of the moves before normalisation
+	 */
+	private static final float CAPTURE_PRIOR = 4, KING_PRIOR = 2, QUIET_PRIOR = 1;
+
+	protected TablutGame game;
+	protected double utilMax;
+	protected double utilMin;
+	private final TimeManager timer;
+	private final ExecutorService pool;
+	private final Simulator[] simulators;
+
+	/*
+	 * Node pool, the root is the node 0
+	 */
+	private final int capacity;
+	/**
+	 * Move which leads to the node
+	 */
+	private final int[] moves;
+	/**
+	 * Prior probability of the move which leads to the node
+	 */
+	private final float[] priors;
+	private final int[] numChildren;
+	/**
+	 * Index of the first child, 0 if the node hasn't been expanded, EXPANDING while it is expanded
+	 */
+	private final AtomicIntegerArray firstChild;
+	/**
+	 * Visits of the node, virtual ones included
+	 */
+	private final AtomicIntegerArray visits;
+	/**
+	 * Sum of the rewards of the node in fixed point, seen by the player who made its move
+	 */
+	private final AtomicLongArray rewards;
+	/**
+	 * Number of nodes of the pool in use
+	 */
+	private final AtomicInteger size = new AtomicInteger();
+
+	/**
+	 * Creates a new search object for a given game.
+	 *
+	 * @param game    The game.
+	 * @param utilMin Utility value of worst state for this player.
+	 * @param utilMax Utility value of best state for this player.
+	 * @param time    Maximal computation time in seconds.
+	 */
+	public MonteCarloTreeSearch(TablutGame game, double utilMin, double utilMax, int time) {
+		this(game, utilMin, utilMax, time, DEFAULT_TREE_SIZE,
+				TimeLimitedSearch.newWorkerPool(Runtime.getRuntime().availableProcessors()),
+				Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a new search object for a given game.
+	 *
+	 * @param game     The game.
+	 * @param utilMin  Utility value of worst state for this player.
+	 * @param utilMax  Utility value of best state for this player.
+	 * @param time     Maximal computation time in seconds.
+	 * @param treeSize Size of the node pool in megabytes.
+	 * @param pool     Threads of the search, see TimeLimitedSearch.newWorkerPool
+	 * @param threads  Number of threads of the pool.
+	 */
+	public MonteCarloTreeSearch(TablutGame game, double utilMin, double utilMax, int time, int treeSize,
+			ExecutorService pool, int threads) {
+		this.game = game;
+		this.utilMin = utilMin;
+		this.utilMax = utilMax;
+		this.timer = new TimeManager(time);
+		this.pool = pool;
+		this.capacity = (int) Math.min((long) treeSize * 1024 * 1024 / NODE_BYTES, Integer.MAX_VALUE - 1);
+		this.moves = new int[capacity];
+		this.priors = new float[capacity];
+		this.numChildren = new int[capacity];
+		this.firstChild = new AtomicIntegerArray(capacity);
+		this.visits = new AtomicIntegerArray(capacity);
+		this.rewards = new AtomicLongArray(capacity);
+		this.simulators = new Simulator[threads];
+		for (int i = 0; i < threads; i++)
+			simulators[i] = new Simulator(i);
+	}
+
+	@Override
+	public Action makeDecision(State state) {
+		int[] rootMoves = new int[Move.MAX_MOVES];
+		int numRootMoves = game.getMoves(state, rootMoves);
+		if (numRootMoves == 0)
+			return null;
+		if (numRootMoves == 1) {
+			//An obvious move doesn't need any search
+			return Move.toAction(rootMoves[0], state.getTurn());
+		}
+		timer.start(state);
+		size.set(1);
+		initNode(0, Move.NONE, 1);
+		expand(0, state);
+
+		String player = game.getPlayer(state);
+		List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		for (Simulator simulator : simulators) {
+			simulator.prepare(state, player);
+			futures.add(pool.submit(simulator));
+		}
+		//Waits for the threads until the hard deadline, then they are stopped and the tree is read
+		for (Future<Void> future : futures) {
+			try {
+				future.get(Math.max(timer.remainingNanos(), 0), TimeUnit.NANOSECONDS);
+			} catch (TimeoutException e) {
+				timer.stop();
+				break;
+			} catch (InterruptedException | ExecutionException e) {
+				e.printStackTrace();
+			}
+		}
+		timer.stop();
+		for (Future<Void> future : futures) {
+			try {
+				future.get();
+			} catch (InterruptedException | ExecutionException e) {
+				e.printStackTrace();
+			}
+		}
+
+		int best = getMostVisitedChild();
+		if (best == -1) {
+			//The pool can't even hold the moves of the root
+			return Move.toAction(rootMoves[0], state.getTurn());
+		}
+		double value = getMeanReward(best) * utilMax;
+		System.out.println("Simulazioni: " + visits.get(0) + ", nodi: " + Math.min(size.get(), capacity) + ", mossa "
+				+ Move.toString(moves[best]) + " visitata " + visits.get(best) + " volte con valore " + value);
+		//The chosen move becomes an Action only here, to be sent to the server
+		Action action = Move.toAction(moves[best], state.getTurn());
+		action.setScore(value);
+		return action;
+	}
+
+	/**
+	 * @return The time limits of the search, the client signals to it when the state is received
+	 */
+	public TimeManager getTimeManager() {
+		return timer;
+	}
+
+	/**
+	 * @return The sum of the counters of all the threads of the last search
+	 */
+	public SearchStatistics getStatistics() {
+		SearchStatistics result = new SearchStatistics();
+		for (Simulator simulator : simulators)
+			result.add(simulator.statistics);
+		return result;
+	}
+
+	/**
+	 * @return some statistic data from the last search: the nodes visited in the tree, the playouts
+	 * (evaluations) and the maximum depth of the tree
+	 */
+	@Override
+	public Metrics getMetrics() {
+		SearchStatistics total = getStatistics();
+		Metrics metrics = new Metrics();
+		metrics.set(TimeLimitedSearch.METRICS_NODES_EXPANDED, total.getNodes());
+		metrics.set(TimeLimitedSearch.METRICS_MAX_DEPTH, total.getMaxDepth());
+		metrics.set(TimeLimitedSearch.METRICS_EVALUATIONS, total.getEvaluations());
+		return metrics;
+	}
+
+	/**
+	 * The most visited move of the root is the most reliable one
+	 * @return The most visited child of the root, -1 if the root hasn't been expanded
+	 */
+	private int getMostVisitedChild() {
+		int first = firstChild.get(0), best = first;
+		if (first <= 0)
+			return -1;
+		for (int child = first + 1; child < first + numChildren[0]; child++)
+			if (visits.get(child) > visits.get(best))
+				best = child;
+		return best;
+	}
+
+	private void initNode(int node, int move, float prior) {
+		moves[node] = move;
+		priors[node] = prior;
+		numChildren[node] = 0;
+		firstChild.set(node, 0);
+		visits.set(node, 0);
+		rewards.set(node, 0);
+	}
+
+	/**
+	 * Allocates the children of a node, if no other thread is expanding it and the pool isn't full
+	 * @param state the state of the node, with its turn to move
+	 * @return {@code true} if the node has been expanded by this call
+	 */
+	private boolean expand(int node, State state) {
+		if (size.get() >= capacity || !firstChild.compareAndSet(node, 0, EXPANDING))
+			return false;
+		int[] buffer = new int[Move.MAX_MOVES];
+		int n = game.getMoves(state, buffer);
+		int first = size.getAndAdd(n);
+		if (n == 0 || first + n > capacity)
+			return false; // the node stays a leaf
+		Board board = state.getBoard();
+		float total = 0;
+		for (int i = 0; i < n; i++) {
+			float prior = game.isCapture(state, buffer[i]) ? CAPTURE_PRIOR
+					: board.isKing(Move.getFrom(buffer[i])) ? KING_PRIOR : QUIET_PRIOR;
+			initNode(first + i, buffer[i], prior);
+			total += prior;
+		}
+		for (int i = 0; i < n; i++)
+			priors[first + i] /= total;
+		numChildren[node] = n;
+		// The children are published with the atomic write, after they have been initialised
+		firstChild.set(node, first);
+		return true;
+	}
+
+	/**
+	 * @return The average reward of the node, seen by the player who made its move, 0 if it hasn't been visited
+	 */
+	private double getMeanReward(int node) {
+		int n = visits.get(node);
+		return n == 0 ? 0 : (double) rewards.get(node) / ONE / n;
+	}
+
+	/**
+	 * @return The child with the highest PUCT value
+	 */
+	private int select(int node, int first) {
+		double sqrtVisits = Math.sqrt(visits.get(node));
+		int best = first;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		for (int child = first; child < first + numChildren[node]; child++) {
+			int n = visits.get(child);
+			double value = getMeanReward(child) + EXPLORATION * priors[child] * sqrtVisits / (1 + n);
+			if (value > bestValue) {
+				bestValue = value;
+				best = child;
+			}
+		}
+		return best;
+	}
+
+	///////////////////////////////////////////////////////////////////////////////////////////
+	//Nested helper classes
+
+	/**
+	 * Simulations of one thread, on its own copy of the root with its own context and counters
+	 */
+	private class Simulator implements Callable<Void> {
+		private final GameContext context = new GameContext();
+		private final SearchStatistics statistics = new SearchStatistics();
+		private final Random random;
+		private final int[] buffer = new int[Move.MAX_MOVES];
+		/**
+		 * Nodes of the tree visited by the current simulation, from the root
+		 */
+		private int[] path = new int[64];
+		private State state;
+		private String player;
+
+		Simulator(int num) {
+			this.random = new Random(num);
+		}
+
+		void prepare(State state, String player) {
+			this.state = state.clone();
+			this.player = player;
+			statistics.reset();
+		}
+
+		@Override
+		public Void call() {
+			for (int n = 0; !timer.isStopped(); n++) {
+				if (n % CHECK_INTERVAL == 0 && timer.checkTime())
+					break;
+				simulate();
+			}
+			return null;
+		}
+
+		/**
+		 * Descends the tree to a leaf, plays a random game from it and adds the reward to the nodes of the path
+		 */
+		private void simulate() {
+			int node = 0, ply = 0;
+			path[0] = 0;
+			visits.incrementAndGet(0);
+			double reward;
+			while (true) {
+				statistics.visit(ply);
+				if (game.isTerminal(state)) {
+					reward = game.getUtility(state, player) / utilMax;
+					break;
+				}
+				int first = firstChild.get(node);
+				if (first <= 0 && (first == EXPANDING || visits.get(node) < EXPAND_VISITS || !expand(node, state))) {
+					reward = playout(ply);
+					break;
+				}
+				node = select(node, firstChild.get(node));
+				// Virtual loss, taken back when the reward is added
+				visits.incrementAndGet(node);
+				rewards.addAndGet(node, -ONE);
+				game.makeMove(context, state, moves[node], context.getUndo(ply));
+				ply++;
+				if (ply == path.length)
+					path = Arrays.copyOf(path, 2 * ply);
+				path[ply] = node;
+			}
+			// The reward is seen by the root player, who made the moves of the odd plies
+			for (int i = ply; i >= 1; i--) {
+				double seen = i % 2 == 1 ? reward : -reward;
+				rewards.addAndGet(path[i], ONE + (long) (seen * ONE));
+				game.unmakeMove(context, state, context.getUndo(i - 1));
+			}
+		}
+
+		/**
+		 * Plays random moves from the state, preferring the captures and the threats of the king, and takes
+		 * them back
+		 * @param ply depth of the state
+		 * @return The reward of the final state for the root player, in [-1, 1]
+		 */
+		private double playout(int ply) {
+			int depth = 0;
+			for (; depth < PLAYOUT_DEPTH && !game.isTerminal(state); depth++) {
+				int n = game.getTacticalMoves(state, buffer, context.getTargetBuffer());
+				if (n == 0 || random.nextBoolean())
+					n = game.getMoves(state, buffer);
+				if (n == 0)
+					break;
+				game.makeMove(context, state, buffer[random.nextInt(n)], context.getUndo(ply + depth));
+			}
+			double reward;
+			if (game.isTerminal(state))
+				reward = game.getUtility(state, player) / utilMax;
+			else {
+				//Score values the state for the player who has just moved, as in the leaves of the alpha-beta
+				statistics.evaluations++;
+				boolean rootMoved = (state.getTurn() == Turn.WHITE) != player.equals("W");
+				double score = rootMoved ? Score.calculateScore(game, state, player)
+						: -Score.calculateScore(game, state, TimeLimitedSearch.getOtherPlayer(player));
+				reward = Math.tanh(score / SCORE_SCALE);
+			}
+			for (depth--; depth >= 0; depth--)
+				game.unmakeMove(context, state, context.getUndo(ply + depth));
+			return Math.max(-1, Math.min(1, reward));
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package ai;
+
+import java.util.Arrays;
+
+import domain.Move;
+import domain.State.Turn;
+
+/**
+ * Move ordering tables of one search thread, all indexed by packed moves: two killer moves for each ply,
+ * the history of the quiet moves which produced a cut and the counter move which refuted each move of the
+ * opponent. A state's moves are given by the MovePicker of its ply in this order: the move of the
+ * transposition table, the captures, the moves of the king, the killer moves, the counter move and then
+ * the other moves by history.
+ */
+public class MoveOrdering {
+
+	/**
+	 * Packed moves are smaller than this value, see Move
+	 */
+	static final int MOVE_RANGE = 1 << 14;
+	/**
+	 * When a history value reaches this limit all the values of the player are halved
+	 */
+	static final int HISTORY_LIMIT = 1 << 24;
+
+	/**
+	 * Two killer moves for each ply, the most recent first
+	 */
+	private int[] killers = new int[2 * 16];
+	/**
+	 * History of the quiet moves for each player, white first
+	 */
+	private final int[][] history = new int[2][MOVE_RANGE];
+	/**
+	 * Reply which refuted each move of the opponent, for each player who replies
+	 */
+	private final int[][] counterMoves = new int[2][MOVE_RANGE];
+	/**
+	 * Move pickers, one for each ply
+	 */
+	private MovePicker[] pickers = new MovePicker[16];
+
+	/**
+	 * Keeps the tables for the search of the next turn, two plies later: the killer moves move up by two
+	 * plies, the history values are halved so that the new cuts count more, the counter moves are kept
+	 */
+	void age() {
+		System.arraycopy(killers, 4, killers, 0, killers.length - 4);
+		Arrays.fill(killers, killers.length - 4, killers.length, Move.NONE);
+		for (int side = 0; side < 2; side++)
+			for (int i = 0; i < MOVE_RANGE; i++)
+				history[side][i] >>= 1;
+	}
+
+	/**
+	 * @param ply depth of a state
+	 * @return The move picker of the ply, to be initialised with the state
+	 */
+	MovePicker getPicker(int ply) {
+		ensurePly(ply);
+		if (pickers[ply] == null)
+			pickers[ply] = new MovePicker(this, ply);
+		return pickers[ply];
+	}
+
+	/**
+	 * @param slot 0 for the most recent killer move, 1 for the other one
+	 * @return A killer move of the ply, Move.NONE if there is none
+	 */
+	int getKiller(int ply, int slot) {
+		return ply < pickers.length ? killers[2 * ply + slot] : Move.NONE;
+	}
+
+	/**
+	 * @param turn the player who replies
+	 * @param previousMove move of the opponent, Move.NONE at the root
+	 * @return The reply which last refuted the move, Move.NONE if there is none
+	 */
+	int getCounterMove(Turn turn, int previousMove) {
+		return previousMove == Move.NONE ? Move.NONE : counterMoves[side(turn)][previousMove];
+	}
+
+	/**
+	 * @return The history value of a quiet move of the player
+	 */
+	int getHistory(Turn turn, int move) {
+		return history[side(turn)][move];
+	}
+
+	/**
+	 * Remembers a quiet move which produced a cut
+	 * @param turn the player who made the move
+	 * @param ply depth of the state where the move has been made
+	 * @param remaining depth searched after the move
+	 * @param previousMove move of the opponent which led to the state, Move.NONE at the root
+	 */
+	void update(Turn turn, int move, int ply, int remaining, int previousMove) {
+		int side = side(turn);
+		ensurePly(ply);
+		if (killers[2 * ply] != move) {
+			killers[2 * ply + 1] = killers[2 * ply];
+			killers[2 * ply] = move;
+		}
+		int[] values = history[side];
+		values[move] += remaining * remaining;
+		if (values[move] >= HISTORY_LIMIT)
+			for (int i = 0; i < MOVE_RANGE; i++)
+				values[i] >>= 1;
+		if (previousMove != Move.NONE)
+			counterMoves[side][previousMove] = move;
+	}
+
+	/**
+	 * Grows the tables of the plies if the search is deeper than before
+	 */
+	private void ensurePly(int ply) {
+		if (ply >= pickers.length) {
+			pickers = Arrays.copyOf(pickers, 2 * ply);
+			killers = Arrays.copyOf(killers, 4 * ply);
+		}
+	}
+
+	private static int side(Turn turn) {
+		return turn == Turn.WHITE ? 0 : 1;
+	}
+}
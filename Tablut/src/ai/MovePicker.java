@@ -0,0 +1,197 @@
+package ai;
+
+import domain.Board;
+import domain.Move;
+import domain.State;
+import domain.TablutGame;
+import domain.State.Turn;
+
+/**
+ * Gives the moves of a state one at a time and generates them in stages, so that a state cut by its first
+ * moves doesn't generate the others: the move of the transposition table, then the captures and the moves
+ * of the king, then the killer moves and the counter move, and at last the quiet moves, picked by history.
+ * <p>
+ * There is one picker for each ply of a thread, see MoveOrdering.getPicker
+ */
+public class MovePicker {
+
+	private static final int TABLE = 0, GENERATE_TACTICAL = 1, TACTICAL = 2, KILLERS = 3, GENERATE_QUIET = 4,
+			QUIET = 5, DONE = 6;
+
+	private final MoveOrdering ordering;
+	private final int ply;
+	private final int[] scores = new int[Move.MAX_MOVES];
+	/**
+	 * Boxes where the player captures, low and high word
+	 */
+	private final long[] target = new long[2];
+	private final int[] candidates = new int[3];
+
+	private TablutGame game;
+	private State state;
+	private int[] moves;
+	private int stage;
+	private int numMoves;
+	private int index;
+	private int numCandidates;
+	private int tableMove;
+	private int previousMove;
+	private int king;
+
+	MovePicker(MoveOrdering ordering, int ply) {
+		this.ordering = ordering;
+		this.ply = ply;
+	}
+
+	/**
+	 * Prepares the picker for the moves of a state, nothing is generated yet
+	 * @param moves buffer of at least Move.MAX_MOVES elements, used for the moves of the stages
+	 * @param tableMove best move stored in the transposition table, Move.NONE if there is none
+	 * @param previousMove move of the opponent which led to the state, Move.NONE at the root
+	 */
+	void init(TablutGame game, State state, int[] moves, int tableMove, int previousMove) {
+		this.game = game;
+		this.state = state;
+		this.moves = moves;
+		this.tableMove = tableMove;
+		this.previousMove = previousMove;
+		this.king = state.getBoard().getKingPosition();
+		this.stage = TABLE;
+		this.numMoves = 0;
+		this.numCandidates = 0;
+		this.index = 0;
+	}
+
+	/**
+	 * @return The next move to search, Move.NONE when all the moves have been given
+	 */
+	@SuppressWarnings("fallthrough")
+	int next() {
+		// Each stage falls through to the next one when it has no more moves
+		switch (stage) {
+		case TABLE:
+			stage = GENERATE_TACTICAL;
+			if (tableMove != Move.NONE && isLegal(tableMove, true))
+				return tableMove;
+		case GENERATE_TACTICAL:
+			generateTactical();
+			stage = TACTICAL;
+		case TACTICAL:
+			while (index < numMoves) {
+				int move = moves[index++];
+				if (move != tableMove)
+					return move;
+			}
+			generateKillers();
+			stage = KILLERS;
+		case KILLERS:
+			if (index < numCandidates)
+				return candidates[index++];
+			stage = GENERATE_QUIET;
+		case GENERATE_QUIET:
+			generateQuiet();
+			stage = QUIET;
+		case QUIET:
+			if (index < numMoves)
+				return pickBest();
+			stage = DONE;
+		default:
+			return Move.NONE;
+		}
+	}
+
+	/**
+	 * @return {@code true} if the last move given is quiet: not the move of the table, a capture, a move of
+	 * the king, a killer move nor the counter move
+	 */
+	boolean isQuiet() {
+		return stage == QUIET;
+	}
+
+	/**
+	 * The captures first, then the other moves of the king
+	 */
+	private void generateTactical() {
+		game.getCaptureBoxes(state, target);
+		numMoves = game.getMovesTo(state, target, moves, 0);
+		if (state.getTurn() == Turn.WHITE && king != -1) {
+			int last = state.getPossibleMoves(king, moves, numMoves);
+			for (int i = numMoves; i < last; i++)
+				if (!Board.contains(target[0], target[1], Move.getTo(moves[i])))
+					moves[numMoves++] = moves[i];
+		}
+		index = 0;
+	}
+
+	/**
+	 * The killer moves and the counter move come from other states, only the legal quiet ones are kept
+	 */
+	private void generateKillers() {
+		index = 0;
+		addCandidate(ordering.getKiller(ply, 0));
+		addCandidate(ordering.getKiller(ply, 1));
+		addCandidate(ordering.getCounterMove(state.getTurn(), previousMove));
+	}
+
+	private void addCandidate(int move) {
+		if (move == Move.NONE || move == tableMove || !isLegal(move, false)
+				|| Board.contains(target[0], target[1], Move.getTo(move)))
+			return;
+		if (isCandidate(move))
+			return;
+		candidates[numCandidates++] = move;
+	}
+
+	/**
+	 * All the moves are generated again, the ones already given are left out and the others are scored by history
+	 */
+	private void generateQuiet() {
+		int n = game.getMoves(state, moves);
+		numMoves = 0;
+		for (int i = 0; i < n; i++) {
+			int move = moves[i];
+			if (move == tableMove || Move.getFrom(move) == king || Board.contains(target[0], target[1], Move.getTo(move))
+					|| isCandidate(move))
+				continue;
+			scores[numMoves] = ordering.getHistory(state.getTurn(), move);
+			moves[numMoves++] = move;
+		}
+		index = 0;
+	}
+
+	private boolean isCandidate(int move) {
+		for (int i = 0; i < numCandidates; i++)
+			if (candidates[i] == move)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Selection of the move with the highest history among the ones left, most states are cut before
+	 * the list is sorted
+	 */
+	private int pickBest() {
+		int best = index;
+		for (int i = index + 1; i < numMoves; i++)
+			if (scores[i] > scores[best])
+				best = i;
+		int move = moves[best];
+		moves[best] = moves[index];
+		scores[best] = scores[index];
+		moves[index] = move;
+		index++;
+		return move;
+	}
+
+	/**
+	 * Checks a move which hasn't been generated in this state
+	 * @param kingAllowed {@code false} if the moves of the king must be refused
+	 * @return {@code true} if a pawn of the player who has to move can make the move
+	 */
+	private boolean isLegal(int move, boolean kingAllowed) {
+		Board board = state.getBoard();
+		int from = Move.getFrom(move);
+		boolean own = state.getTurn() == Turn.WHITE ? board.isWhite(from) || (kingAllowed && from == king) : board.isBlack(from);
+		return own && state.isPossibleAction(from, Move.getTo(move));
+	}
+}
@@ -1,7 +1,5 @@
 package ai;
 
-import java.util.HashMap;
-
 import domain.Board;
 import domain.State;
 import domain.TablutGame;
@@ -14,6 +12,19 @@ import domain.Board.Pawn;
  */
 public class Score{
 
+	/*
+	 * Boxes checked by the score, as indexes {@code row * Board.SIZE + column} of the board
+	 */
+	private static final int C5 = 38;
+	private static final int D5 = 39;
+	private static final int E3 = 22;
+	private static final int E4 = 31;
+	private static final int E5 = 40;
+	private static final int E6 = 49;
+	private static final int E7 = 58;
+	private static final int F5 = 41;
+	private static final int G5 = 42;
+
 	public static double calculateScore(TablutGame game, State state, String player){
 		int scoreWhite = 0;
 		int scoreBlack = 0;
@@ -24,115 +35,15 @@ public class Score{
 
 		int numBlackNearTheKing = game.numBlackNearTheKing(state);
 
-		String currentKingPosition = state.getCurrentKingPosition();
-		int rowKing = board.getRow(currentKingPosition);
-		int columnKing = board.getColumn(currentKingPosition);
-
-		HashMap<Diagonal, String[]> backDiagonals = board.getDiagonals();
-
-		boolean leftUpDiagonalSet = false;
-		boolean leftDownDiagonalSet = false;
-		boolean rightUpDiagonalSet = false;
-		boolean rightDownDiagonalSet = false;
-		boolean trovato;
+		int currentKingPosition = state.getCurrentKingPosition();
+		int rowKing = currentKingPosition / Board.SIZE;
+		int columnKing = currentKingPosition % Board.SIZE;
 
 		//Checks if the diagonals are completed by black pawns
-		if(board.getPawn("g8") == Pawn.BLACK && board.getPawn("h7") == Pawn.BLACK){
-			trovato = false;
-			for(String box : backDiagonals.get(Diagonal.RIGHTDOWNBIG)){
-				if(board.getPawn(box) != Pawn.EMPTY){
-					trovato = true;
-					break;
-				}
-			}
-			if(!trovato){
-				rightDownDiagonalSet = true;
-			}
-			
-		} else if(board.getPawn("f7") == Pawn.BLACK && board.getPawn("g6") == Pawn.BLACK){
-			trovato = false;
-			for(String box : backDiagonals.get(Diagonal.RIGHTDOWNSMALL)){
-				if(board.getPawn(box) != Pawn.EMPTY){
-					trovato = true;
-					break;
-				}
-			}
-			if(!trovato){
-				rightDownDiagonalSet = true;
-			}
-		}
-		if(board.getPawn("g2") == Pawn.BLACK && board.getPawn("h3") == Pawn.BLACK){
-			trovato = false;
-			for(String box : backDiagonals.get(Diagonal.RIGHTUPBIG)){
-				if(board.getPawn(box) != Pawn.EMPTY){
-					trovato = true;
-					break;
-				}
-			}
-			if(!trovato){
-				rightUpDiagonalSet = true;
-			}
-
-		} else if(board.getPawn("f3") == Pawn.BLACK && board.getPawn("g4") == Pawn.BLACK){
-			trovato = false;
-			for(String box : backDiagonals.get(Diagonal.RIGHTUPSMALL)){
-				if(board.getPawn(box) != Pawn.EMPTY){
-					trovato = true;
-					break;
-				}
-			}
-			if(!trovato){
-				rightUpDiagonalSet = true;
-			}
-		}
-		if(board.getPawn("b3") == Pawn.BLACK && board.getPawn("c2") == Pawn.BLACK){
-			trovato = false;
-			for(String box : backDiagonals.get(Diagonal.LEFTUPBIG)){
-				if(board.getPawn(box) != Pawn.EMPTY){
-					trovato  = true;
-					break;
-				}
-			}
-			if(!trovato){
-				leftUpDiagonalSet = true;
-			}
-
-		} else if(board.getPawn("c4") == Pawn.BLACK && board.getPawn("d3") == Pawn.BLACK){
-			trovato = false;
-			for(String box : backDiagonals.get(Diagonal.LEFTUPSMALL)){
-				if(board.getPawn(box) != Pawn.EMPTY){
-					trovato = true;
-					break;
-				}
-			}
-			if(!trovato){
-				leftUpDiagonalSet = true;
-			}
-		}
-		if(board.getPawn("b7") == Pawn.BLACK && board.getPawn("c8") == Pawn.BLACK){
-			trovato = false;
-			for(String box : backDiagonals.get(Diagonal.LEFTDOWNBIG)){
-				if(board.getPawn(box) != Pawn.EMPTY){
-					trovato = true;
-					break;
-				}
-			}
-			if(!trovato){
-				leftDownDiagonalSet = true;
-			}
-
-		} else if(board.getPawn("c6") == Pawn.BLACK && board.getPawn("d7") == Pawn.BLACK){
-			trovato = false;
-			for(String box : backDiagonals.get(Diagonal.LEFTDOWNSMALL)){
-				if(board.getPawn(box) != Pawn.EMPTY){
-					trovato = true;
-					break;
-				}
-			}
-			if(!trovato){
-				leftDownDiagonalSet = true;
-			}
-		}
+		boolean leftUpDiagonalSet = isDiagonalSet(board, Diagonal.LEFTUPBIG, Diagonal.LEFTUPSMALL);
+		boolean leftDownDiagonalSet = isDiagonalSet(board, Diagonal.LEFTDOWNBIG, Diagonal.LEFTDOWNSMALL);
+		boolean rightUpDiagonalSet = isDiagonalSet(board, Diagonal.RIGHTUPBIG, Diagonal.RIGHTUPSMALL);
+		boolean rightDownDiagonalSet = isDiagonalSet(board, Diagonal.RIGHTDOWNBIG, Diagonal.RIGHTDOWNSMALL);
 
 		switch (player){
 			case "W" :
@@ -143,7 +54,7 @@ public class Score{
 				//Doppio scacco del re 
 				if(rowKing == 2){
 					if(board.isEmptyLeft(currentKingPosition) && board.isEmptyRight(currentKingPosition) ){
-						if(currentKingPosition.equals("e3")){
+						if(currentKingPosition == E3){
 							if(board.kingProtectedDown(rowKing, columnKing)){ 
 								scoreWhite += 50;
 							}
@@ -164,7 +75,7 @@ public class Score{
 				//Doppio scacco del re 
 				if(rowKing == 6){
 					if(board.isEmptyLeft(currentKingPosition) && board.isEmptyRight(currentKingPosition)){
-						if(currentKingPosition.equals("e7")){
+						if(currentKingPosition == E7){
 							if(board.kingProtectedUp(rowKing, columnKing)){
 								scoreWhite += 50;
 							}
@@ -185,7 +96,7 @@ public class Score{
 				//Doppio scacco del re 
 				if(columnKing == 2){
 					if(board.isEmptyDown(currentKingPosition) && board.isEmptyUp(currentKingPosition)){
-						if(currentKingPosition.equals("c5")){
+						if(currentKingPosition == C5){
 							if(board.kingProtectedRight(rowKing, columnKing)){
 								scoreWhite += 50;
 							}
@@ -206,7 +117,7 @@ public class Score{
 				//Doppio scacco del re 
 				if(columnKing == 6){
 					if(board.isEmptyDown(currentKingPosition) && board.isEmptyUp(currentKingPosition)){
-						if(currentKingPosition.equals("g5")){
+						if(currentKingPosition == G5){
 							if(board.kingProtectedLeft(rowKing, columnKing)){
 								scoreWhite += 50;
 							}
@@ -226,7 +137,7 @@ public class Score{
 
 				//Creazione di aperture protette per il re, il controllo del numero di catture maggiore di quello dei neri è dovuto al
 				//non essere troppo difensivi
-				if(currentKingPosition.equals("e5")){
+				if(currentKingPosition == E5){
 					if(board.getPawnDiagonalLeftDown(currentKingPosition) == Pawn.WHITE){
 						scoreWhite += 2;
 					}
@@ -276,7 +187,7 @@ public class Score{
 
 				//Manca una pedina alla vittoria o due
 				switch(currentKingPosition){
-					case "e5":
+					case E5:
 						if(numBlackNearTheKing >= 3){
 							scoreBlack += (50 + numBlackNearTheKing);
 						}
@@ -285,7 +196,7 @@ public class Score{
 						}
 						break;
 
-					case "e4":
+					case E4:
 						if(numBlackNearTheKing >= 2){
 							scoreBlack += (50 + numBlackNearTheKing);
 						}
@@ -294,7 +205,7 @@ public class Score{
 						}
 						break;
 
-					case "e6":
+					case E6:
 						if(numBlackNearTheKing >= 2){
 							scoreBlack += (50 + numBlackNearTheKing);
 						}
@@ -303,7 +214,7 @@ public class Score{
 						}
 						break;
 
-					case "d5":
+					case D5:
 						if(numBlackNearTheKing >= 2){
 							scoreBlack += (50 + numBlackNearTheKing);
 						}
@@ -312,7 +223,7 @@ public class Score{
 						}
 						break;
 
-					case "f5":
+					case F5:
 						if(numBlackNearTheKing >= 2){
 							scoreBlack += (50 + numBlackNearTheKing);
 						}
@@ -371,4 +282,16 @@ public class Score{
 
 	}
 
+	/**
+	 * A diagonal is set if its boxes are black and the boxes behind it are empty: the big diagonal is checked first,
+	 * the small one only if the big one is not complete
+	 */
+	private static boolean isDiagonalSet(Board board, Diagonal big, Diagonal small){
+		if(board.isBlackDiagonal(big))
+			return board.isEmptyBehind(big);
+		if(board.isBlackDiagonal(small))
+			return board.isEmptyBehind(small);
+		return false;
+	}
+
 }
\ No newline at end of file
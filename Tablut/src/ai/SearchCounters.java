@@ -0,0 +1,14 @@
+package ai;
+
+/**
+ * Counters of SearchStatistics, between the padding of CacheLinePadding and the one of SearchStatistics
+ */
+abstract class SearchCounters extends CacheLinePadding {
+
+	long nodes;
+	long cuts;
+	long evaluations;
+	long tableProbes;
+	long tableHits;
+	int maxDepth;
+}
@@ -0,0 +1,91 @@
+package ai;
+
+/**
+ * Counters of one search thread. Each thread writes only its own counters, without locks nor atomic
+ * operations, and the search sums them when the metrics are requested.
+ * <p>
+ * The counters are declared in SearchCounters, with padding on both sides, so that the counters written
+ * at every node by different threads are never on the same cache line.
+ */
+public class SearchStatistics extends SearchCounters {
+
+	/*
+	 * Padding after the counters
+	 */
+	long q0, q1, q2, q3, q4, q5, q6, q7;
+
+	/**
+	 * Sets all the counters to zero, before a new search
+	 */
+	public void reset() {
+		this.nodes = 0;
+		this.cuts = 0;
+		this.evaluations = 0;
+		this.tableProbes = 0;
+		this.tableHits = 0;
+		this.maxDepth = 0;
+	}
+
+	/**
+	 * Adds the counters of another thread to these ones
+	 */
+	public void add(SearchStatistics other) {
+		this.nodes += other.nodes;
+		this.cuts += other.cuts;
+		this.evaluations += other.evaluations;
+		this.tableProbes += other.tableProbes;
+		this.tableHits += other.tableHits;
+		this.maxDepth = Math.max(this.maxDepth, other.maxDepth);
+	}
+
+	/**
+	 * Counts a node visited at the specified depth
+	 */
+	void visit(int depth) {
+		this.nodes++;
+		if (depth > this.maxDepth)
+			this.maxDepth = depth;
+	}
+
+	/**
+	 * @return The number of nodes visited
+	 */
+	public long getNodes() {
+		return this.nodes;
+	}
+
+	/**
+	 * @return The number of alpha-beta cuts
+	 */
+	public long getCuts() {
+		return this.cuts;
+	}
+
+	/**
+	 * @return The number of heuristic evaluations
+	 */
+	public long getEvaluations() {
+		return this.evaluations;
+	}
+
+	/**
+	 * @return The number of probes of the transposition table
+	 */
+	public long getTableProbes() {
+		return this.tableProbes;
+	}
+
+	/**
+	 * @return The number of probes of the transposition table which gave a usable score
+	 */
+	public long getTableHits() {
+		return this.tableHits;
+	}
+
+	/**
+	 * @return The maximum depth reached
+	 */
+	public int getMaxDepth() {
+		return this.maxDepth;
+	}
+}
@@ -1,19 +1,28 @@
 package ai;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import aima.core.search.adversarial.AdversarialSearch;
 import aima.core.search.framework.Metrics;
 
 import domain.Action;
+import domain.GameContext;
+import domain.Move;
 import domain.State;
 import domain.TablutGame;
+import domain.Undo;
 import domain.State.Turn;
 
 /**
@@ -21,26 +30,92 @@ import domain.State.Turn;
  * Original class at: <p>
  * {@linkplain https://github.com/aimacode/aima-java/blob/AIMA3e/aima-core/src/main/java/aima/core/search/adversarial/IterativeDeepeningAlphaBetaSearch.java}
  * <p>
- * Implements an iterative deepening Minmax search with alpha-beta pruning, thread pool and
- * action ordering. Maximal computation time is specified in seconds.
+ * Implements an iterative deepening principal variation search (negamax with null windows for the moves
+ * after the first one) with aspiration windows at the root, thread pool, a transposition table shared by
+ * the threads and action ordering. Maximal computation time is specified in seconds.
  */
 public class TimeLimitedSearch implements AdversarialSearch<State, Action> {
 
 	public final static String METRICS_NODES_EXPANDED = "nodesExpanded";
 	public final static String METRICS_MAX_DEPTH = "maxDepth";
+	public final static String METRICS_CUTS = "cuts";
+	public final static String METRICS_EVALUATIONS = "evaluations";
+	public final static String METRICS_TABLE_PROBES = "tableProbes";
+	public final static String METRICS_TABLE_HITS = "tableHits";
+	/**
+	 * Default size of the transposition table in megabytes
+	 */
+	public final static int DEFAULT_TABLE_SIZE = 64;
+	/**
+	 * Half width of the aspiration window around the score of the previous iteration
+	 */
+	private final static double ASPIRATION_WINDOW = 1;
+	/**
+	 * Half width beyond which a failed aspiration window is opened to infinity
+	 */
+	private final static double MAX_ASPIRATION_WINDOW = 16;
+	/**
+	 * Maximum number of plies of the quiescence search after the depth limit
+	 */
+	private final static int QUIESCENCE_DEPTH = 4;
+	/**
+	 * Minimum remaining depth of a null move, and minimum number of pawns of the player who passes
+	 */
+	private final static int NULL_MOVE_DEPTH = 3, NULL_MOVE_PAWNS = 5;
+	/**
+	 * The quiet moves after the first LATE_MOVES are reduced, if the remaining depth is at least REDUCTION_DEPTH
+	 */
+	private final static int LATE_MOVES = 4, REDUCTION_DEPTH = 3;
 
 	protected TablutGame game;
 	protected double utilMax;
 	protected double utilMin;
-	private Timer timer;
+	private TimeManager timer;
 
-	private Metrics metrics = new Metrics();
-
-	public int numCuts;
-	private int numberOfThread;
+	/**
+	 * Number of search threads
+	 */
 	protected int K;
-	protected int[] currDepthLimit;
-	protected boolean[] heuristicEvaluationUsed;
+	/**
+	 * Threads of the search, they are kept alive between the turns
+	 */
+	private ExecutorService pool;
+	/**
+	 * Context of each thread: depth limit, undo records, move buffers and counters of the thread.
+	 * The game is shared, it holds no state
+	 */
+	protected WorkerContext[] workers;
+	/**
+	 * Callable of each thread, reused at every turn
+	 */
+	private SearchCallable[] callables;
+	/**
+	 * Scores of the states already searched, shared by all the threads and kept between the turns
+	 */
+	protected TranspositionTable table;
+	/**
+	 * Results of the last search started on the pool, null when all of them have been collected
+	 */
+	private List<Future<MoveStore>> running;
+	/**
+	 * Best move of the deepest iteration completed by any thread of the running search, null until the
+	 * first iteration is completed. The threads publish into it and makeDecision reads it at the deadline
+	 */
+	private final AtomicReference<BestMove> bestMove = new AtomicReference<BestMove>();
+	/**
+	 * {@code true} if the running search has been started on the opponent's time
+	 */
+	private boolean pondering;
+	/**
+	 * Key of the state expected after the opponent's move, the one searched while pondering
+	 */
+	private long ponderKey;
+	/**
+	 * Key of the state expected two plies after the last decision, along its principal variation, and the
+	 * depth it has already been searched to. A search of that state resumes from this depth
+	 */
+	private long predictedKey;
+	private int predictedDepth;
 
 	/**
 	 * Creates a new search object for a given game.
@@ -55,82 +130,203 @@ public class TimeLimitedSearch implements AdversarialSearch<State, Action> {
 	 * @param time    Maximal computation time in seconds.
 	 */
 	public TimeLimitedSearch(TablutGame game, double utilMin, double utilMax, int time) {
+		this(game, utilMin, utilMax, time, DEFAULT_TABLE_SIZE);
+	}
+
+	/**
+	 * Creates a new search object for a given game.
+	 *
+	 * @param game      The game.
+	 * @param utilMin   Utility value of worst state for this player.
+	 * @param utilMax   Utility value of best state for this player.
+	 * @param time      Maximal computation time in seconds.
+	 * @param tableSize Size of the transposition table in megabytes.
+	 */
+	public TimeLimitedSearch(TablutGame game, double utilMin, double utilMax, int time, int tableSize) {
+		this(game, utilMin, utilMax, time, tableSize, newWorkerPool(Runtime.getRuntime().availableProcessors()),
+				Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a new search object for a given game which uses the specified threads.
+	 *
+	 * @param game      The game.
+	 * @param utilMin   Utility value of worst state for this player.
+	 * @param utilMax   Utility value of best state for this player.
+	 * @param time      Maximal computation time in seconds.
+	 * @param tableSize Size of the transposition table in megabytes.
+	 * @param pool      Threads used by the search, see newWorkerPool.
+	 * @param threads   Number of threads of the pool.
+	 */
+	public TimeLimitedSearch(TablutGame game, double utilMin, double utilMax, int time, int tableSize,
+			ExecutorService pool, int threads) {
 		this.game = game;
 		this.utilMin = utilMin;
 		this.utilMax = utilMax;
-		this.timer = new Timer(time);
-		this.numberOfThread = Runtime.getRuntime().availableProcessors();
-		this.K = this.numberOfThread;
-		this.currDepthLimit = new int[K];
-		this.heuristicEvaluationUsed = new boolean[K];
+		this.timer = new TimeManager(time);
+		this.K = threads;
+		this.pool = pool;
+		this.workers = new WorkerContext[K];
+		this.callables = new SearchCallable[K];
+		for (int i = 0; i < K; i++) {
+			this.workers[i] = new WorkerContext(i);
+			this.callables[i] = new SearchCallable(this.workers[i]);
+		}
+		this.table = new TranspositionTable(tableSize);
+	}
+
+	/**
+	 * @param threads number of threads
+	 * @return A pool of daemon threads for the search, to be created once and used for the whole game
+	 */
+	public static ExecutorService newWorkerPool(int threads) {
+		return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "search-" + count.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
 	}
 
 	/**
-	 * Implementation of the interface Callable for multithreading
+	 * Implementation of the interface Callable for multithreading: every callable searches all the moves
+	 * of the root with iterative deepening (Lazy SMP). The callables share only the transposition table,
+	 * so what a thread finds speeds up the others; the odd threads start one depth deeper to search
+	 * different parts of the tree at the same time
 	 */
 
-	private class SearchCallable implements Callable<Action> {
-		private int num;
+	private class SearchCallable implements Callable<MoveStore> {
+		private final WorkerContext worker;
 		private State state;
 		private String player;
-		private List<Action> tempA;
+		private MoveStore tempA;
+		/**
+		 * Depth of the iterations which can be skipped, the first iteration is one deeper
+		 */
+		private int startDepth;
 
 		/**
 		 * Create a new Callable object
 		 * 
-		 * @param num		Index of the callableTask
-		 * @param state		state of the game
-		 * @param player 	player type (white or black)
-		 * @param tempA	 	sub-list of the action list at depth 0
+		 * @param worker	context of the thread which runs the callable
 		 */
 
-		public SearchCallable(int num, State state, String player, List<Action> tempA) {
-			this.num = num;
-			this.state = state;
+		public SearchCallable(WorkerContext worker) {
+			this.worker = worker;
+		}
+
+		/**
+		 * Prepares the callable for a new search
+		 * 
+		 * @param state		state of the game, the callable searches on its own copy
+		 * @param player 	player type (white or black)
+		 * @param moves	 	the moves at depth 0
+		 * @param startDepth	depth already searched by the previous turns, 0 if the state wasn't predicted
+		 */
+		void prepare(State state, String player, int[] moves, int startDepth) {
+			this.state = state.clone();
 			this.player = player;
-			this.tempA = tempA;
+			this.tempA = new MoveStore(moves.clone());
+			this.startDepth = startDepth;
+			worker.reset();
 		}
 
 		@Override
-		public Action call() {
-			
+		public MoveStore call() {
+			//A state without moves has nothing to search nor to publish
+			if (tempA.size() == 0)
+				return tempA;
+			worker.depthLimit = startDepth + worker.num % 2;
 			do {
-				currDepthLimit[num]++;
-
-				heuristicEvaluationUsed[num] = false;
-
-				ActionStore<Action> lastValuedActions = new ActionStore<Action>();
-
-				for (Action action : tempA) {
-					// minValue calculus are based on the simulated action's state obtained by game.getResult
-					double value = minValue(game.getResult(state, action), player, Double.NEGATIVE_INFINITY, 
-											Double.POSITIVE_INFINITY, 1, num);
-
-					if (timer.timeOutOccurred()){
-						break; // exit from action loop
-					}
-
-					lastValuedActions.add(action, value);
+				worker.depthLimit++;
+
+				// The window is centered on the score of the previous iteration and widened when the score falls out
+				double delta = ASPIRATION_WINDOW;
+				boolean aspiration = tempA.depth > 0 && !hasSafeWinner(tempA.values[0]);
+				double alpha = aspiration ? tempA.values[0] - delta : Double.NEGATIVE_INFINITY;
+				double beta = aspiration ? tempA.values[0] + delta : Double.POSITIVE_INFINITY;
+				MoveStore lastValuedMoves;
+				while (true) {
+					worker.heuristicEvaluationUsed = false;
+					lastValuedMoves = searchRoot(alpha, beta);
+					if (timer.isStopped() || lastValuedMoves.size() == 0)
+						break;
+					double value = lastValuedMoves.values[0];
+					if (value <= alpha && alpha != Double.NEGATIVE_INFINITY) {
+						delta *= 2;
+						alpha = delta > MAX_ASPIRATION_WINDOW ? Double.NEGATIVE_INFINITY : value - delta;
+					} else if (value >= beta && beta != Double.POSITIVE_INFINITY) {
+						delta *= 2;
+						beta = delta > MAX_ASPIRATION_WINDOW ? Double.POSITIVE_INFINITY : value + delta;
+					} else
+						break;
 				}
 
-				if(lastValuedActions.size() > 0){
-					lastValuedActions.actions.get(0).setScore(lastValuedActions.utilValues.get(0));
-					tempA = lastValuedActions.actions;
-					if (!timer.timeOutOccurred()) {
-						if (hasSafeWinner(tempA.get(0).getScore())){
-							break;
-						}
-						else if (lastValuedActions.size() > 1 && isSignificantlyBetter(tempA.get(0).getScore(), lastValuedActions.utilValues.get(1))){
-							break;
-						}
+				// Only a completed iteration replaces the result of the previous one
+				if (lastValuedMoves.size() == tempA.size()) {
+					lastValuedMoves.depth = worker.depthLimit;
+					tempA = lastValuedMoves;
+					publish(new BestMove(tempA.moves[0], tempA.values[0], tempA.depth));
+					//The first thread tells the time manager how stable the best move is
+					if (worker.num == 0)
+						timer.iterationCompleted(tempA.moves[0]);
+					if (hasSafeWinner(tempA.values[0])){
+						break;
+					}
+					else if (tempA.size() > 1 && isSignificantlyBetter(tempA.values[0], tempA.values[1])){
+						break;
 					}
 				}
 				
-			} while (!timer.timeOutOccurred() && heuristicEvaluationUsed[num]);
-			System.out.println("Thread " + num + " ha score migliore di: " + tempA.get(0).getScore() + " con mossa " + tempA.get(0).toString());
-			return tempA.get(0);
+			} while (timer.canStartIteration() && worker.heuristicEvaluationUsed);
+			//When the first thread stops deepening the iterations still running in the others are cancelled
+			if (worker.num == 0)
+				timer.stop();
+			System.out.println("Thread " + worker.num + " ha score migliore di: " + tempA.values[0] + " con mossa "
+					+ Move.toString(tempA.moves[0]) + " al livello " + tempA.depth);
+			return tempA;
 		}// call
 
+		/**
+		 * Searches the moves at depth 0 in the order of the previous iteration: the first one with the window,
+		 * the others with a null window, searched again only if they turn out to be better
+		 * @return The moves valued, only the first one has an exact score. The store is not complete if the
+		 * search has been stopped or if a move has reached beta
+		 */
+		private MoveStore searchRoot(double alpha, double beta) {
+			GameContext context = worker.game;
+			String opponent = getOtherPlayer(player);
+			MoveStore valuedMoves = new MoveStore(tempA.size());
+			for (int i = 0; i < tempA.size(); i++) {
+				// the scores are calculated on the move made in place on the thread's state
+				int move = tempA.moves[i];
+				Undo undo = context.getUndo(0);
+				game.makeMove(context, state, move, undo);
+				double value;
+				if (i == 0)
+					value = -search(state, opponent, -beta, -alpha, 1, worker.depthLimit - 1, move, worker);
+				else {
+					value = -search(state, opponent, -Math.nextUp(alpha), -alpha, 1, worker.depthLimit - 1, move, worker);
+					if (value > alpha && value < beta)
+						value = -search(state, opponent, -beta, -alpha, 1, worker.depthLimit - 1, move, worker);
+				}
+				game.unmakeMove(context, state, undo);
+
+				if (timer.isStopped()){
+					break; // exit from move loop
+				}
+
+				valuedMoves.add(move, value);
+				alpha = Math.max(alpha, value);
+				if (alpha >= beta)
+					break;
+			}
+			return valuedMoves;
+		}
 	}
 
 	/**
@@ -141,156 +337,398 @@ public class TimeLimitedSearch implements AdversarialSearch<State, Action> {
 
 	@Override
 	public Action makeDecision(State state) {
-		numCuts = 0;
-		ArrayList<List<Action>> temp = new ArrayList<List<Action>>(K);
-		metrics = new Metrics();
 		String player = game.getPlayer(state);
-		List<Action> results = game.getActions(state);
-		timer.start();
-
-		for (int i = 0; i < K; i++) {
-			currDepthLimit[i] = 0;
+		List<Future<MoveStore>> futures;
+		if (pondering && state.getKey() == ponderKey) {
+			//Ponder hit: the search started on the opponent's time goes on, now with the time limit
+			System.out.println("Mossa dell'avversario prevista");
+			timer.start(state);
+			pondering = false;
+			futures = running;
+		} else {
+			stopSearch();
+			int[] moves = new int[Move.MAX_MOVES];
+			int numMoves = game.getMoves(state, moves);
+			if (numMoves == 0)
+				return null;
+			if (numMoves == 1) {
+				//An obvious move doesn't need any search
+				return Move.toAction(moves[0], state.getTurn());
+			}
+			timer.start(state);
+			futures = startSearch(state);
 		}
 
-		/*
-		 * The action list at depth 0 is organized in K sub-lists where 
-		 * K is the number of thread executed at the same time.
-		 */
-
-		int part = results.size() / K;
-
-		if (results.size() >= K) {
-			for (int i = 0; i < K; i++) {
-				temp.add(i, results.subList(part * i, part * (i + 1) ));
-				if (i == K - 1)
-					temp.add(i, results.subList(part * i, results.size()));
+		//Waits for the threads until the hard deadline, the result is read from the slot where they publish
+		for (int i = 0; i < futures.size(); i++) {
+			try {
+				futures.get(i).get(Math.max(timer.remainingNanos(), 0), TimeUnit.NANOSECONDS);
+			} catch (TimeoutException e) {
+				//The threads still running are cancelled, the next search waits for them
+				timer.stop();
+				break;
+			} catch (InterruptedException | ExecutionException e) {
+				e.printStackTrace();
 			}
+		}
 
+		BestMove best = bestMove.get();
+		int result;
+		double max;
+		if (best != null) {
+			result = best.move;
+			max = best.score;
+			predict(state, result, best.depth);
+			if (Double.compare(max, TablutGame.maxValue) == 0) {
+				State s = state.clone();
+				game.makeMove(s, result, new Undo());
+				if ((player.equals("W") && s.getTurn() == Turn.WHITEWIN) || (player.equals("B") && s.getTurn() == Turn.BLACKWIN))
+					System.out.println("HAI VINTO!");
+			}
 		} else {
-			K--;
-			while (K > 0) {
-				if ((part = results.size() / K) > 0) {
-					for (int i = 0; i < K; i++) {
-						temp.add(i, results.subList(i, i+1));
-					}
-					break;
-				} else {
-					K--;
-				}
-			} // while
+			//Not even the first iteration has been completed, the move of the table is better than nothing
+			predictedKey = 0;
+			int[] moves = new int[Move.MAX_MOVES];
+			if (game.getMoves(state, moves) == 0)
+				return null;
+			int tableMove = TranspositionTable.getMove(table.probe(state.getKey()));
+			result = tableMove != Move.NONE && game.checkMove(state, tableMove) == TablutGame.LEGAL ? tableMove : moves[0];
+			max = Double.NEGATIVE_INFINITY;
 		}
+		System.out.println("Tagli effettuati: " + getStatistics().getCuts());
+		//The chosen move becomes an Action only here, to be sent to the server
+		Action action = Move.toAction(result, state.getTurn());
+		action.setScore(max);
+		return action;
+	}
 
-		/**
-		 * Each thread analyzes the tree of its sub-list until timeout is reached 
-		 * then it returns the action with the higher score 
-		 */
+	/**
+	 * Follows the principal variation in the transposition table after the chosen move: the state after the
+	 * reply of the opponent has already been searched two plies less deep than the root
+	 * @param state the state of the decision
+	 * @param move the chosen move
+	 * @param depth depth of the iteration which chose the move
+	 */
+	private void predict(State state, int move, int depth) {
+		predictedKey = 0;
+		State expected = state.clone();
+		game.makeMove(expected, move, new Undo());
+		int reply = TranspositionTable.getMove(table.probe(expected.getKey()));
+		if (reply == Move.NONE || game.isTerminal(expected) || game.checkMove(expected, reply) != TablutGame.LEGAL)
+			return;
+		game.makeMove(expected, reply, new Undo());
+		predictedKey = expected.getKey();
+		predictedDepth = depth - 2;
+	}
 
-		ArrayList<Callable<Action>> callableTasks = new ArrayList<Callable<Action>>(K);
-		for (int i = 0; i < K; i++) {
-			callableTasks.add(new SearchCallable(i, state, player, temp.get(i)));
+	/**
+	 * Starts the search of the specified state on the pool, without waiting for it.
+	 * Each thread analyzes the whole tree until timeout is reached 
+	 * and publishes the best move of every iteration it completes
+	 * @return The futures of the threads, they end when the threads stop
+	 */
+	private List<Future<MoveStore>> startSearch(State state) {
+		stopSearch();
+		String player = game.getPlayer(state);
+		int[] results = new int[Move.MAX_MOVES];
+		int numResults = game.getMoves(state, results);
+		int[] moves = Arrays.copyOf(results, numResults);
+		//The best move found by the previous turns is searched first, the depths already searched are skipped
+		int tableMove = TranspositionTable.getMove(table.probe(state.getKey()));
+		for (int i = 1; i < moves.length; i++)
+			if (moves[i] == tableMove) {
+				moves[i] = moves[0];
+				moves[0] = tableMove;
+			}
+		int startDepth = state.getKey() == predictedKey ? Math.max(predictedDepth, 0) : 0;
+		if (startDepth > 0)
+			System.out.println("Stato previsto, la ricerca riprende dal livello " + (startDepth + 1));
+		table.newSearch();
+		bestMove.set(null);
+
+		List<Future<MoveStore>> futures = new ArrayList<Future<MoveStore>>();
+		for (SearchCallable callable : callables) {
+			callable.prepare(state, player, moves, startDepth);
+			futures.add(pool.submit(callable));
 		}
+		running = futures;
+		return futures;
+	}
 
-		List<Future<Action>> futures = new ArrayList<Future<Action>>();
+	/**
+	 * Searches on the opponent's time: the reply of the opponent found by the last search is made on the
+	 * state and the threads search the resulting state, without time limit, filling the transposition table.
+	 * If the opponent plays the expected reply makeDecision goes on with this search, otherwise it stops it
+	 * and the search starts again from the state received, with the table already filled
+	 * @param state The state after our move, the opponent is to move
+	 * @return {@code true} if the search has started, {@code false} if no reply of the opponent is known
+	 */
+	public boolean ponder(State state) {
+		stopSearch();
+		State expected = getPonderState(state);
+		if (expected == null)
+			return false;
+		int reply = expected.getLastMove();
+		System.out.println("Ricerca sul tempo dell'avversario, risposta prevista " + Move.toString(reply));
+		timer.startPondering();
+		ponderKey = expected.getKey();
+		startSearch(expected);
+		pondering = true;
+		return true;
+	}
 
-		ExecutorService exec = Executors.newFixedThreadPool(K);
-		try {
-			try {
-				futures = exec.invokeAll(callableTasks);
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-			}
-		} finally {
-			exec.shutdown();
-		}
+	/**
+	 * Makes on a copy of the state the reply of the opponent found by the last search. The possible actions
+	 * of the copy are computed again: the client makes its own move without updating the ones of its pawns
+	 * @param state The state after our move, the opponent is to move
+	 * @return The state expected after the reply, null if no reply is known or the game ends
+	 */
+	State getPonderState(State state) {
+		int reply = TranspositionTable.getMove(table.probe(state.getKey()));
+		if (reply == Move.NONE || game.isTerminal(state))
+			return null;
+		State expected = state.clone();
+		expected.updateCurrentKingPosition();
+		expected.updatePossibleActions(Turn.WHITE);
+		expected.updatePossibleActions(Turn.BLACK);
+		if (game.checkMove(expected, reply) != TablutGame.LEGAL)
+			return null;
+		game.makeMove(expected, reply, new Undo());
+		return game.isTerminal(expected) ? null : expected;
+	}
 
-		/**
-		 * makeDecision chooses, among eight actions, the one with the higher score.
-		 */
-		int maxi = -1;
-		double max = Double.NEGATIVE_INFINITY;
-		Action result = null;
-		for (int i = 0; i < K; i++) {
-			double futureScore = Double.NEGATIVE_INFINITY;
-			Action futureAction = null;
+	/**
+	 * Stops the search started by ponder and waits for the threads, nothing is done if the search isn't pondering
+	 */
+	public void stopPondering() {
+		if (pondering)
+			stopSearch();
+	}
+
+	/**
+	 * Cancels the running search, if any, and waits for its threads so that their callables can be reused
+	 */
+	private void stopSearch() {
+		if (running == null)
+			return;
+		timer.stop();
+		for (Future<MoveStore> future : running) {
 			try {
-				futureAction = futures.get(i).get();
-				futureScore = futureAction.getScore();
+				future.get();
 			} catch (InterruptedException | ExecutionException e) {
 				e.printStackTrace();
 			}
-
-			if (Double.compare(futureScore, TablutGame.maxValue) == 0) {
-				State s = game.getResult(state, futureAction);
-				if (player.equals("W") && s.getTurn() == Turn.WHITEWIN) {
-					System.out.println("HAI VINTO!");
-					return futureAction;
-
-				} else if (player.equals("B") && s.getTurn() == Turn.BLACKWIN) {
-					System.out.println("HAI VINTO!");
-					return futureAction;
-				}
-			}
-
-			if (futureScore > max) {
-				max = futureScore;
-				maxi = i;
-			}
-		}//for
-
-		try {
-			result = futures.get(maxi).get();
-		} catch (InterruptedException | ExecutionException e) {
-			e.printStackTrace();
 		}
-		System.out.println("Tagli effettuati: " + numCuts);
-		//Reset K to numberOfThread
-		K = numberOfThread;
-		return result;
+		running = null;
+		pondering = false;
 	}
 
-	public double maxValue(State state, String player, double alpha, double beta, int depth, int numThread) {
-		updateMetrics(depth);
-		if (game.isTerminal(state) || depth >= currDepthLimit[numThread] || timer.timeOutOccurred()) {
-			return -eval(state, getOtherPlayer(player), numThread);
+	/**
+	 * Principal variation search of a state, the scores are seen by the player who has to move.
+	 * The search is selective: a null move can cut the state before its moves are searched, and the quiet
+	 * moves ordered late are searched with a reduced depth, and again with the full depth if they turn out
+	 * to be better than alpha
+	 * @param player the player who has to move in the state
+	 * @param depth depth of the state
+	 * @param remaining depth still to search, the quiescence search starts when it is 0
+	 * @param previousMove move which led to the state, Move.NONE after a null move
+	 * @return The score of the state for the player who has to move
+	 */
+	public double search(State state, String player, double alpha, double beta, int depth, int remaining, int previousMove,
+			WorkerContext worker) {
+		SearchStatistics statistics = worker.statistics;
+		statistics.visit(depth);
+		if (game.isTerminal(state) || timer.isStopped(statistics.nodes)) {
+			return -eval(state, getOtherPlayer(player), worker);
+		} else if (remaining <= 0) {
+			return quiescence(state, player, alpha, beta, depth, 0, worker);
 		} else {
+			long key = state.getKey();
+			long entry = table.probe(key);
+			statistics.tableProbes++;
+			if (isUsable(entry, remaining, alpha, beta)) {
+				statistics.tableHits++;
+				worker.heuristicEvaluationUsed = true;
+				return TranspositionTable.getScore(entry);
+			}
+			String opponent = getOtherPlayer(player);
+			boolean pvNode = beta > Math.nextUp(alpha);
+			// The black can't ignore a king which is about to escape, the white can't pass when it can escape
+			boolean threat = game.isEscapeThreatened(state);
+
+			if (!pvNode && !threat && previousMove != Move.NONE && remaining >= NULL_MOVE_DEPTH && hasPawnsToMove(state)
+					&& -eval(state, opponent, worker) >= beta) {
+				//Null move: if the opponent moving twice can't reach beta, the state would be cut anyway
+				Turn turn = state.getTurn();
+				state.setTurn(turn == Turn.WHITE ? Turn.BLACK : Turn.WHITE);
+				int reduction = remaining > 6 ? 3 : 2;
+				double nullValue = -search(state, opponent, -beta, Math.nextUp(-beta), depth + 1, remaining - 1 - reduction,
+						Move.NONE, worker);
+				state.setTurn(turn);
+				if (nullValue >= beta && !timer.isStopped()) {
+					statistics.cuts++;
+					return hasSafeWinner(nullValue) ? beta : nullValue;
+				}
+			}
+
+			double alphaOrig = alpha;
 			double value = Double.NEGATIVE_INFINITY;
-			//Current actions are calculated from the passed simulation state
-			for (Action action : game.getActions(state)) {
-				//Same as in makeDecision method's minValue
-				value = Math.max(value, minValue(game.getResult(state, action), player, alpha, beta, depth + 1, numThread));
+			int bestMove = 0;
+			//Current moves are generated in stages from the passed simulation state, in the order of the tables of the thread
+			GameContext context = worker.game;
+			MovePicker picker = worker.ordering.getPicker(depth);
+			picker.init(game, state, context.getMoveBuffer(depth), TranspositionTable.getMove(entry), previousMove);
+			Undo undo = context.getUndo(depth);
+			int move;
+			for (int i = 0; (move = picker.next()) != Move.NONE; i++) {
+				// The late quiet moves are searched with less depth
+				int reduction = 0;
+				if (i >= LATE_MOVES && remaining >= REDUCTION_DEPTH && !threat && picker.isQuiet())
+					reduction = (i >= 3 * LATE_MOVES && remaining > REDUCTION_DEPTH) ? 2 : 1;
+				game.makeMove(context, state, move, undo);
+				double childValue;
+				if (i == 0)
+					childValue = -search(state, opponent, -beta, -alpha, depth + 1, remaining - 1, move, worker);
+				else {
+					//The other moves only have to prove that they are not better than the first one
+					childValue = -search(state, opponent, -Math.nextUp(alpha), -alpha, depth + 1, remaining - 1 - reduction, move, worker);
+					if (reduction > 0 && childValue > alpha)
+						childValue = -search(state, opponent, -Math.nextUp(alpha), -alpha, depth + 1, remaining - 1, move, worker);
+					if (childValue > alpha && childValue < beta)
+						childValue = -search(state, opponent, -beta, -alpha, depth + 1, remaining - 1, move, worker);
+				}
+				game.unmakeMove(context, state, undo);
+				if (childValue > value) {
+					value = childValue;
+					bestMove = move;
+				}
 				if (value >= beta){
-					numCuts++;
+					statistics.cuts++;
+					if (undo.getNumCaptured() == 0)
+						worker.ordering.update(state.getTurn(), bestMove, depth, remaining, previousMove);
+					store(key, remaining, TranspositionTable.LOWER, value, bestMove);
 					return value;
 				}
 				alpha = Math.max(alpha, value);
 			}
+			store(key, remaining, value <= alphaOrig ? TranspositionTable.UPPER : TranspositionTable.EXACT, value, bestMove);
 			return value;
 		}
 	}
 
-	public double minValue(State state, String player, double alpha, double beta, int depth, int numThread) {
-		updateMetrics(depth);
-		if (game.isTerminal(state) || depth >= currDepthLimit[numThread] || timer.timeOutOccurred()) {
-			return eval(state, player, numThread);
-		} else {
-			double value = Double.POSITIVE_INFINITY;
-			//Current actions are calculated from the passed simulation state
-			for (Action action : game.getActions(state)) {
-				//Same as in makeDecision method's minValue
-				value = Math.min(value, maxValue(game.getResult(state, action), player, alpha, beta, depth + 1, numThread));
-				if (value <= alpha){
-					numCuts++;
-					return value;
-				}
-				beta = Math.min(beta, value);
+	/**
+	 * Guard against zugzwang: with few pawns passing can be better than any move, and the null move would
+	 * cut states which are lost
+	 * @return {@code true} if the player who has to move has enough pawns to try a null move
+	 */
+	private static boolean hasPawnsToMove(State state) {
+		int pawns = state.getTurn() == Turn.WHITE ? state.getNumWhite() : state.getNumBlack();
+		return pawns >= NULL_MOVE_PAWNS;
+	}
+
+	/**
+	 * Quiescence search after the depth limit: only the captures and the moves of the king towards the
+	 * escapes are searched, and the player can always stop with the heuristic score of the state (stand pat).
+	 * When the king threatens to escape the black can't stand pat and only its replies to the threat are searched
+	 * @param player the player who has to move in the state
+	 * @param depth depth of the state
+	 * @param plies plies already searched after the depth limit
+	 * @return The score of the state for the player who has to move
+	 */
+	private double quiescence(State state, String player, double alpha, double beta, int depth, int plies, WorkerContext worker) {
+		SearchStatistics statistics = worker.statistics;
+		if (plies > 0)
+			statistics.visit(depth);
+		String opponent = getOtherPlayer(player);
+		if (game.isTerminal(state) || timer.isStopped(statistics.nodes) || plies >= QUIESCENCE_DEPTH)
+			return -eval(state, opponent, worker);
+		boolean forced = state.getTurn() == Turn.BLACK && game.isEscapeThreatened(state);
+		double value = Double.NEGATIVE_INFINITY;
+		if (!forced) {
+			value = -eval(state, opponent, worker);
+			if (value >= beta)
+				return value;
+			alpha = Math.max(alpha, value);
+		}
+		GameContext context = worker.game;
+		int[] moves = context.getMoveBuffer(depth);
+		int numMoves = forced ? game.getEscapeReplies(state, moves, context.getTargetBuffer())
+				: game.getTacticalMoves(state, moves, context.getTargetBuffer());
+		Undo undo = context.getUndo(depth);
+		for (int i = 0; i < numMoves; i++) {
+			game.makeMove(context, state, moves[i], undo);
+			double childValue = -quiescence(state, opponent, -beta, -alpha, depth + 1, plies + 1, worker);
+			game.unmakeMove(context, state, undo);
+			if (childValue > value)
+				value = childValue;
+			if (value >= beta) {
+				statistics.cuts++;
+				return value;
 			}
-			return value;
+			alpha = Math.max(alpha, value);
+		}
+		if (value == Double.NEGATIVE_INFINITY)
+			return -eval(state, opponent, worker);
+		return value;
+	}
+
+	/**
+	 * @param entry entry of the transposition table, 0 if there is none
+	 * @param remaining depth still to search from the state
+	 * @return {@code true} if the score of the entry can be returned without searching the state
+	 */
+	static boolean isUsable(long entry, int remaining, double alpha, double beta) {
+		if (entry == 0 || TranspositionTable.getDepth(entry) < remaining)
+			return false;
+		double score = TranspositionTable.getScore(entry);
+		switch (TranspositionTable.getBound(entry)) {
+		case TranspositionTable.EXACT:
+			return true;
+		case TranspositionTable.LOWER:
+			return score >= beta;
+		case TranspositionTable.UPPER:
+			return score <= alpha;
+		default:
+			return false;
 		}
 	}
 
-	private void updateMetrics(int depth) {
-		metrics.incrementInt(METRICS_NODES_EXPANDED);
-		metrics.set(METRICS_MAX_DEPTH, Math.max(metrics.getInt(METRICS_MAX_DEPTH), depth));
+	/**
+	 * Stores a result in the transposition table, unless the search has been interrupted by the timeout
+	 */
+	private void store(long key, int remaining, int bound, double value, int bestMove) {
+		if (!timer.isStopped())
+			table.store(key, remaining, bound, value, bestMove);
+	}
+
+	/**
+	 * Publishes the result of a completed iteration, if it is better than the one already published:
+	 * a safe win comes first, then the deepest iteration and then the score
+	 */
+	private void publish(BestMove candidate) {
+		BestMove current;
+		do {
+			current = bestMove.get();
+			if (current != null && !candidate.isBetterThan(current, utilMax))
+				return;
+		} while (!bestMove.compareAndSet(current, candidate));
+	}
+
+	/**
+	 * @return The time limits of the search, the client signals to it when the state is received
+	 */
+	public TimeManager getTimeManager() {
+		return timer;
+	}
+
+	/**
+	 * @return The sum of the counters of all the threads in the last search
+	 */
+	public SearchStatistics getStatistics() {
+		SearchStatistics result = new SearchStatistics();
+		for (WorkerContext worker : workers)
+			result.add(worker.statistics);
+		return result;
 	}
 
 	/**
@@ -298,6 +736,21 @@ public class TimeLimitedSearch implements AdversarialSearch<State, Action> {
 	 */
 	@Override
 	public Metrics getMetrics() {
+		return toMetrics(getStatistics());
+	}
+
+	/**
+	 * @param total the counters of all the threads of a search
+	 * @return The metrics reported to the client, shared with YoungBrothersWaitSearch
+	 */
+	static Metrics toMetrics(SearchStatistics total) {
+		Metrics metrics = new Metrics();
+		metrics.set(METRICS_NODES_EXPANDED, total.getNodes());
+		metrics.set(METRICS_MAX_DEPTH, total.getMaxDepth());
+		metrics.set(METRICS_CUTS, total.getCuts());
+		metrics.set(METRICS_EVALUATIONS, total.getEvaluations());
+		metrics.set(METRICS_TABLE_PROBES, total.getTableProbes());
+		metrics.set(METRICS_TABLE_HITS, total.getTableHits());
 		return metrics;
 	}
 
@@ -322,16 +775,17 @@ public class TimeLimitedSearch implements AdversarialSearch<State, Action> {
 	/**
 	 * Estimates the value for (not necessarily terminal) states.
 	 */
-	protected double eval(State state, String player, int numThread) {
+	protected double eval(State state, String player, WorkerContext worker) {
 		if (game.isTerminal(state)) {
 			return game.getUtility(state, player);
 		} else {
-			heuristicEvaluationUsed[numThread] = true;
+			worker.heuristicEvaluationUsed = true;
+			worker.statistics.evaluations++;
 			return Score.calculateScore(game, state, player);
 		}
 	}
 
-	public String getOtherPlayer(String player){
+	static String getOtherPlayer(String player){
 		if(player.equals("W")){
 			return "B";
 		}
@@ -343,41 +797,72 @@ public class TimeLimitedSearch implements AdversarialSearch<State, Action> {
 	///////////////////////////////////////////////////////////////////////////////////////////
 	//Nested helper classes
 
-	private static class Timer {
-		private long duration;
-		private long startTime;
-
-		Timer(int maxSeconds) {
-			this.duration = 1000 * maxSeconds;
-		}
-
-		void start() {
-			startTime = System.currentTimeMillis();
+	/**
+	 * Best move of a completed iteration, published by the threads in an atomic reference
+	 */
+	private static final class BestMove {
+		final int move;
+		final double score;
+		final int depth;
+
+		BestMove(int move, double score, int depth) {
+			this.move = move;
+			this.score = score;
+			this.depth = depth;
 		}
 
-		boolean timeOutOccurred() {
-			return System.currentTimeMillis() > startTime + duration;
+		boolean isBetterThan(BestMove other, double utilMax) {
+			boolean win = score >= utilMax, otherWin = other.score >= utilMax;
+			if (win != otherWin)
+				return win;
+			return depth > other.depth || (depth == other.depth && score > other.score);
 		}
 	}
 
 	/**
-	 * Orders actions by utility.
+	 * Orders moves by utility.
 	 */
-	public static class ActionStore<A> {
-		public List<A> actions = new ArrayList<>();
-		public List<Double> utilValues = new ArrayList<>();
+	public static class MoveStore {
+		public int[] moves;
+		public double[] values;
+		private int size;
+		/**
+		 * Depth of the iteration which valued the moves, 0 if they haven't been valued
+		 */
+		int depth;
+
+		/**
+		 * Creates an empty store for the specified number of moves
+		 */
+		MoveStore(int capacity) {
+			this.moves = new int[capacity];
+			this.values = new double[capacity];
+		}
+
+		/**
+		 * Creates a store of the specified moves, not valued yet
+		 */
+		MoveStore(int[] moves) {
+			this.moves = moves;
+			this.values = new double[moves.length];
+			this.size = moves.length;
+			Arrays.fill(this.values, Double.NEGATIVE_INFINITY);
+		}
 
-		void add(A action, double utilValue) {
+		void add(int move, double utilValue) {
 			int idx = 0;
-			//Puts at the bottom of the list actions with lower values
-			while (idx < actions.size() && utilValue <= utilValues.get(idx))
+			//Puts at the bottom of the list moves with lower values
+			while (idx < size && utilValue <= values[idx])
 				idx++;
-			actions.add(idx, action);
-			utilValues.add(idx, utilValue);
+			System.arraycopy(moves, idx, moves, idx + 1, size - idx);
+			System.arraycopy(values, idx, values, idx + 1, size - idx);
+			moves[idx] = move;
+			values[idx] = utilValue;
+			size++;
 		}
 
 		int size() {
-			return actions.size();
+			return size;
 		}
 	}
 }
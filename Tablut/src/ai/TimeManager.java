@@ -0,0 +1,165 @@
+package ai;
+
+import domain.State;
+
+/**
+ * Time limits of a search, shared by all its threads and measured with System.nanoTime.
+ * <p>
+ * The hard deadline is the time given to the search, counted from when the state has been received:
+ * when it is reached the search is cancelled. The soft deadline is the time after which no new iteration
+ * is started, it depends on the phase of the game and it gets longer when the best move keeps changing
+ * and shorter when it stays the same.
+ * <p>
+ * The threads read only a volatile flag at every node and look at the clock every CHECK_INTERVAL nodes.
+ * The methods start and iterationCompleted are synchronized: after a ponder hit start is called while
+ * the search goes on, and an iteration completed at the same time must not mix the origin of the previous
+ * turn with the new deadlines.
+ */
+public class TimeManager {
+
+	/**
+	 * The clock is read once every CHECK_INTERVAL nodes of a thread, it must be a power of 2
+	 */
+	public static final int CHECK_INTERVAL = 1024;
+	private static final long CHECK_MASK = CHECK_INTERVAL - 1;
+	/**
+	 * Fraction of the time given to the soft deadline at the beginning and at the end of the game
+	 */
+	private static final double OPENING_FRACTION = 0.6, ENDGAME_FRACTION = 0.35;
+	/**
+	 * Bounds of the factor applied to the soft deadline by the stability of the best move
+	 */
+	private static final double MIN_SCALE = 0.4, MAX_SCALE = 2.0;
+	/**
+	 * Pawns on the board at the beginning of the game
+	 */
+	private static final int START_PAWNS = 25;
+
+	/**
+	 * Time given to the search in nanoseconds
+	 */
+	private final long budget;
+	/**
+	 * Time when the last state has been received, 0 if it hasn't been signalled
+	 */
+	private long receivedTime;
+	/**
+	 * Time when the search of the turn started and time given to its soft deadline, written by start and
+	 * read by iterationCompleted under the lock of the manager
+	 */
+	private long origin;
+	private long softBudget;
+	private volatile long softDeadline;
+	private volatile long hardDeadline;
+	private volatile boolean unlimited;
+	/**
+	 * Cancellation token of the search
+	 */
+	private volatile boolean stopped;
+	private int lastBestMove;
+	private double scale;
+
+	/**
+	 * @param maxSeconds time given to the search from when the state is received
+	 */
+	public TimeManager(int maxSeconds) {
+		this.budget = 1000000000L * maxSeconds;
+	}
+
+	/**
+	 * Signals that the state to search has just been received, the time of the search is counted from now
+	 */
+	public void stateReceived() {
+		this.receivedTime = System.nanoTime();
+	}
+
+	/**
+	 * Starts the time of the search of the specified state
+	 */
+	public synchronized void start(State state) {
+		origin = receivedTime != 0 ? receivedTime : System.nanoTime();
+		receivedTime = 0;
+		int pawns = Math.min(state.getNumWhite() + state.getNumBlack(), START_PAWNS);
+		double fraction = ENDGAME_FRACTION + (OPENING_FRACTION - ENDGAME_FRACTION) * pawns / START_PAWNS;
+		softBudget = (long) (budget * fraction);
+		scale = 1.0;
+		lastBestMove = -1;
+		hardDeadline = origin + budget;
+		softDeadline = origin + softBudget;
+		unlimited = false;
+		stopped = false;
+	}
+
+	/**
+	 * Starts a search without time limit, which ends only when it is stopped or start is called
+	 */
+	public void startPondering() {
+		unlimited = true;
+		stopped = false;
+	}
+
+	/**
+	 * Cancels the search
+	 */
+	public void stop() {
+		stopped = true;
+	}
+
+	/**
+	 * @return {@code true} if the search has been cancelled, the clock isn't read
+	 */
+	public boolean isStopped() {
+		return stopped;
+	}
+
+	/**
+	 * Checks the hard deadline once every CHECK_INTERVAL nodes of a thread, and cancels the search if it
+	 * has been reached
+	 * @param nodes nodes visited by the thread
+	 * @return {@code true} if the search has been cancelled
+	 */
+	public boolean isStopped(long nodes) {
+		if ((nodes & CHECK_MASK) == 0)
+			return checkTime();
+		return stopped;
+	}
+
+	/**
+	 * Reads the clock and cancels the search if the hard deadline has been reached
+	 * @return {@code true} if the search has been cancelled
+	 */
+	public boolean checkTime() {
+		if (!stopped && !unlimited && System.nanoTime() - hardDeadline > 0)
+			stopped = true;
+		return stopped;
+	}
+
+	/**
+	 * @return {@code true} if there is time to start a new iteration
+	 */
+	public boolean canStartIteration() {
+		return !stopped && (unlimited || System.nanoTime() - softDeadline < 0);
+	}
+
+	/**
+	 * Adapts the soft deadline to the best move of the iteration just completed: the time is extended if
+	 * the best move has changed and reduced if it is the same as before. It must be called by one thread only,
+	 * it never overlaps start
+	 * @param bestMove best move of the iteration
+	 */
+	public synchronized void iterationCompleted(int bestMove) {
+		if (lastBestMove != -1)
+			scale = bestMove == lastBestMove ? Math.max(scale * 0.8, MIN_SCALE) : Math.min(scale * 1.5, MAX_SCALE);
+		lastBestMove = bestMove;
+		softDeadline = origin + Math.min((long) (softBudget * scale), budget);
+	}
+
+	/**
+	 * @return Nanoseconds left before the hard deadline, Long.MAX_VALUE while pondering
+	 */
+	public long remainingNanos() {
+		if (unlimited)
+			return Long.MAX_VALUE;
+		return hardDeadline - System.nanoTime();
+	}
+}
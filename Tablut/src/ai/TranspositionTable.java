@@ -0,0 +1,131 @@
+package ai;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed size transposition table shared without locks by all the search threads.
+ * <p>
+ * Every entry is packed in a single long, so it is always read and written atomically:
+ * <pre>
+ * bits  0-15  best move, packed as in Move (Move.NONE if unknown)
+ * bits 16-31  score (signed)
+ * bits 32-39  remaining depth of the search which produced the score
+ * bits 40-41  bound type (LOWER, UPPER or EXACT, 0 for an empty entry)
+ * bits 42-47  generation of the search which wrote the entry
+ * bits 48-63  highest 16 bits of the Zobrist key, used to verify the entry
+ * </pre>
+ * The table is made of buckets of two entries indexed by the lowest bits of the key: the first one keeps the
+ * deepest result (or any result of an older search), the second one is always replaced.
+ */
+public class TranspositionTable {
+
+	public static final int LOWER = 1;
+	public static final int UPPER = 2;
+	public static final int EXACT = 3;
+
+	private static final int MAX_SCORE = Short.MAX_VALUE;
+	private static final int MAX_DEPTH = 0xFF;
+
+	private final AtomicLongArray entries;
+	private final int bucketMask;
+	private volatile int generation;
+
+	/**
+	 * Creates a table using at most the specified memory
+	 * @param sizeMB size of the table in megabytes, the number of entries is rounded down to a power of two
+	 */
+	public TranspositionTable(int sizeMB) {
+		long numEntries = Long.highestOneBit(Math.max(2, ((long) sizeMB << 20) / Long.BYTES));
+		numEntries = Math.min(numEntries, 1 << 30);
+		this.entries = new AtomicLongArray((int) numEntries);
+		this.bucketMask = (int) (numEntries / 2) - 1;
+	}
+
+	/**
+	 * Starts a new search: the entries of the previous searches become the first to be replaced
+	 */
+	public void newSearch() {
+		this.generation = (this.generation + 1) & 0x3F;
+	}
+
+	/**
+	 * @param key Zobrist key of the state
+	 * @return The entry stored for the state, 0 if there is none
+	 */
+	public long probe(long key) {
+		int index = ((int) key & this.bucketMask) << 1;
+		long check = key >>> 48;
+		long entry = this.entries.get(index);
+		if (entry != 0 && (entry >>> 48) == check)
+			return entry;
+		entry = this.entries.get(index + 1);
+		if (entry != 0 && (entry >>> 48) == check)
+			return entry;
+		return 0;
+	}
+
+	/**
+	 * Stores the result of the search of a state
+	 * @param key Zobrist key of the state
+	 * @param depth remaining depth of the search
+	 * @param bound LOWER, UPPER or EXACT
+	 * @param score score of the state
+	 * @param move best move found, Move.NONE if unknown
+	 */
+	public void store(long key, int depth, int bound, double score, int move) {
+		int index = ((int) key & this.bucketMask) << 1;
+		int generation = this.generation;
+		long entry = (key >>> 48) << 48
+				| (long) generation << 42
+				| (long) bound << 40
+				| (long) Math.min(Math.max(depth, 0), MAX_DEPTH) << 32
+				| (long) (toShort(score) & 0xFFFF) << 16
+				| (move & 0xFFFF);
+
+		long deepest = this.entries.get(index);
+		if (deepest == 0 || getGeneration(deepest) != generation || depth >= getDepth(deepest))
+			this.entries.set(index, entry);
+		else
+			this.entries.set(index + 1, entry);
+	}
+
+	private static int toShort(double score) {
+		if (score >= MAX_SCORE)
+			return MAX_SCORE;
+		if (score <= -MAX_SCORE)
+			return -MAX_SCORE;
+		return (int) Math.round(score);
+	}
+
+	/**
+	 * @return The best move of the entry, Move.NONE if unknown
+	 */
+	public static int getMove(long entry) {
+		return (int) (entry & 0xFFFF);
+	}
+
+	/**
+	 * @return The score of the entry
+	 */
+	public static double getScore(long entry) {
+		return (short) (entry >>> 16);
+	}
+
+	/**
+	 * @return The remaining depth of the search which produced the entry
+	 */
+	public static int getDepth(long entry) {
+		return (int) ((entry >>> 32) & MAX_DEPTH);
+	}
+
+	/**
+	 * @return The bound type of the entry: LOWER, UPPER or EXACT
+	 */
+	public static int getBound(long entry) {
+		return (int) ((entry >>> 40) & 0x3);
+	}
+
+	private static int getGeneration(long entry) {
+		return (int) ((entry >>> 42) & 0x3F);
+	}
+}
@@ -0,0 +1,45 @@
+package ai;
+
+/**
+ * Everything a search thread writes while it searches: its depth limit, its game context (undo records and
+ * move buffers), its move ordering tables and its counters. There is one context for each thread of the
+ * pool and it is reused at every turn, so the buffers stay allocated and warm in the cache of the thread.
+ * <p>
+ * The contexts are allocated one after the other: the fields are declared in WorkerFields, with padding
+ * on both sides, so that the fields written at every node by different threads are on different cache lines.
+ */
+public class WorkerContext extends WorkerFields {
+
+	/*
+	 * Padding after the fields
+	 */
+	long q0, q1, q2, q3, q4, q5, q6, q7;
+
+	public WorkerContext(int num) {
+		super(num);
+	}
+
+	/**
+	 * Prepares the context for a new search, the move ordering tables of the previous turns are kept
+	 */
+	void reset() {
+		this.depthLimit = 0;
+		this.heuristicEvaluationUsed = false;
+		this.ordering.age();
+		this.statistics.reset();
+	}
+
+	/**
+	 * @return The index of the thread
+	 */
+	public int getNum() {
+		return this.num;
+	}
+
+	/**
+	 * @return The counters of the thread
+	 */
+	public SearchStatistics getStatistics() {
+		return this.statistics;
+	}
+}
@@ -0,0 +1,41 @@
+package ai;
+
+import domain.GameContext;
+
+/**
+ * Fields of WorkerContext, between the padding of CacheLinePadding and the one of WorkerContext
+ */
+abstract class WorkerFields extends CacheLinePadding {
+
+	/**
+	 * Index of the thread
+	 */
+	final int num;
+	/**
+	 * Depth limit of the current iteration
+	 */
+	int depthLimit;
+	/**
+	 * {@code true} if the current iteration has used the heuristic, so a deeper one can change the result
+	 */
+	boolean heuristicEvaluationUsed;
+	/**
+	 * Game counters, undo records and move buffers of the thread
+	 */
+	final GameContext game;
+	/**
+	 * Killer moves, history and counter moves of the thread
+	 */
+	final MoveOrdering ordering;
+	/**
+	 * Counters of the thread, they are summed only when the metrics are requested
+	 */
+	final SearchStatistics statistics;
+
+	WorkerFields(int num) {
+		this.num = num;
+		this.game = new GameContext();
+		this.ordering = new MoveOrdering();
+		this.statistics = new SearchStatistics();
+	}
+}
@@ -0,0 +1,452 @@
+package ai;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+
+import aima.core.search.adversarial.AdversarialSearch;
+import aima.core.search.framework.Metrics;
+
+import domain.Action;
+import domain.GameContext;
+import domain.Move;
+import domain.State;
+import domain.TablutGame;
+import domain.Undo;
+
+/**
+ * Parallel alpha-beta search based on the Young Brothers Wait Concept, an alternative to the Lazy SMP of
+ * TimeLimitedSearch.
+ * <p>
+ * At every node the first move (the eldest brother) is searched serially. When it doesn't produce a cut,
+ * the other moves (the young brothers) become fork/join tasks that the idle threads of the pool can steal.
+ * The brothers share the best score found at their node, and they stop as soon as one of them produces a
+ * beta cut. Near the leaves the search is always serial, since a task would cost more than the node.
+ * <p>
+ * The search is a negamax: the scores are seen by the player who has to move. Iterative deepening stops
+ * at the timeout and the move of the deepest completed iteration is returned. Maximal computation time
+ * is specified in seconds.
+ */
+public class YoungBrothersWaitSearch implements AdversarialSearch<State, Action> {
+
+	/**
+	 * Minimum remaining depth of a node whose young brothers are searched in parallel
+	 */
+	private static final int SPLIT_DEPTH = 3;
+	/**
+	 * Maximum depth of the iterative deepening
+	 */
+	private static final int MAX_DEPTH = 64;
+
+	protected TablutGame game;
+	protected double utilMax;
+	protected double utilMin;
+	private final TimeManager timer;
+
+	private final ForkJoinPool pool;
+	/**
+	 * Scores of the states already searched, from the point of view of the player who has to move
+	 */
+	protected TranspositionTable table;
+	/**
+	 * Counters of the last search, one for each thread of the pool: the tasks write the counters of the
+	 * thread which runs them, without locks, and they are summed only when the metrics are requested
+	 */
+	private final List<SearchStatistics> counters = new CopyOnWriteArrayList<SearchStatistics>();
+	/**
+	 * Counters of the threads ended by the pool, they are given to the next threads it creates
+	 */
+	private final Queue<SearchStatistics> freeCounters = new ConcurrentLinkedQueue<SearchStatistics>();
+
+	/**
+	 * Creates a new search object for a given game.
+	 *
+	 * @param game    The game.
+	 * @param utilMin Utility value of worst state for this player.
+	 * @param utilMax Utility value of best state for this player.
+	 * @param time    Maximal computation time in seconds.
+	 */
+	public YoungBrothersWaitSearch(TablutGame game, double utilMin, double utilMax, int time) {
+		this(game, utilMin, utilMax, time, TimeLimitedSearch.DEFAULT_TABLE_SIZE);
+	}
+
+	/**
+	 * Creates a new search object for a given game.
+	 *
+	 * @param game      The game.
+	 * @param utilMin   Utility value of worst state for this player.
+	 * @param utilMax   Utility value of best state for this player.
+	 * @param time      Maximal computation time in seconds.
+	 * @param tableSize Size of the transposition table in megabytes.
+	 */
+	public YoungBrothersWaitSearch(TablutGame game, double utilMin, double utilMax, int time, int tableSize) {
+		this.game = game;
+		this.utilMin = utilMin;
+		this.utilMax = utilMax;
+		this.timer = new TimeManager(time);
+		this.pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), new ForkJoinWorkerThreadFactory() {
+			@Override
+			public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+				return new SearchThread(pool);
+			}
+		}, null, false);
+		this.table = new TranspositionTable(tableSize);
+	}
+
+	@Override
+	public Action makeDecision(State state) {
+		String player = game.getPlayer(state);
+		timer.start(state);
+		this.table.newSearch();
+		for (SearchStatistics statistics : counters)
+			statistics.reset();
+
+		int result = Move.NONE;
+		double max = Double.NEGATIVE_INFINITY;
+		for (int depth = 1; depth <= MAX_DEPTH && (depth == 1 || timer.canStartIteration()); depth++) {
+			SearchTask root = new SearchTask(state, Move.NONE, player, depth, 0,
+					Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, null);
+			double value = pool.invoke(root);
+			if (timer.isStopped() || root.bestMove == Move.NONE)
+				break;
+			result = root.bestMove;
+			max = value;
+			timer.iterationCompleted(result);
+			System.out.println("Profondita " + depth + ": " + Move.toString(result) + " con score " + value);
+			if (hasSafeWinner(value))
+				break;
+		}
+
+		if (result == Move.NONE) {
+			int[] moves = new int[Move.MAX_MOVES];
+			if (game.getMoves(state, moves) == 0)
+				return null;
+			result = moves[0];
+		}
+		//The chosen move becomes an Action only here, to be sent to the server
+		Action action = Move.toAction(result, state.getTurn());
+		action.setScore(max);
+		return action;
+	}
+
+	/**
+	 * @return The time limits of the search, the client signals to it when the state is received
+	 */
+	public TimeManager getTimeManager() {
+		return timer;
+	}
+
+	/**
+	 * @return The sum of the counters of all the threads in the last search
+	 */
+	public SearchStatistics getStatistics() {
+		SearchStatistics result = new SearchStatistics();
+		for (SearchStatistics statistics : counters)
+			result.add(statistics);
+		return result;
+	}
+
+	/**
+	 * @return some statistic data from the last search.
+	 */
+	@Override
+	public Metrics getMetrics() {
+		return TimeLimitedSearch.toMetrics(getStatistics());
+	}
+
+	/**
+	 * Is used to stop iterative deepening search in situations where a safe winner has been identified.
+	 */
+	protected boolean hasSafeWinner(double resultUtility) {
+		return resultUtility <= utilMin || resultUtility >= utilMax;
+	}
+
+	/**
+	 * Estimates the value for (not necessarily terminal) states.
+	 */
+	protected double eval(State state, String player, SearchStatistics statistics) {
+		if (game.isTerminal(state)) {
+			return game.getUtility(state, player);
+		} else {
+			statistics.evaluations++;
+			return Score.calculateScore(game, state, player);
+		}
+	}
+
+	///////////////////////////////////////////////////////////////////////////////////////////
+	//Nested helper classes
+
+	/**
+	 * Node whose young brothers are searched in parallel: it holds the best score found by the brothers
+	 * and tells them to stop when one of them produces a cut
+	 */
+	private static class SplitPoint {
+		private final SplitPoint parent;
+		private final double beta;
+		private volatile double alpha;
+		private volatile boolean cut;
+		private double bestValue = Double.NEGATIVE_INFINITY;
+		private int bestMove = Move.NONE;
+
+		SplitPoint(SplitPoint parent, double alpha, double beta) {
+			this.parent = parent;
+			this.alpha = alpha;
+			this.beta = beta;
+		}
+
+		/**
+		 * @return {@code true} if this node or one of its ancestors has been cut
+		 */
+		boolean isCut() {
+			for (SplitPoint node = this; node != null; node = node.parent)
+				if (node.cut)
+					return true;
+			return false;
+		}
+
+		/**
+		 * Adds the score of a brother, the scores found after a cut are not valid and are ignored
+		 */
+		synchronized void update(double value, int move) {
+			if (this.cut)
+				return;
+			if (value > this.bestValue) {
+				this.bestValue = value;
+				this.bestMove = move;
+			}
+			if (value > this.alpha)
+				this.alpha = value;
+			if (value >= this.beta)
+				this.cut = true;
+		}
+	}
+
+	/**
+	 * Copy of the state and game context of a task, reused by the next tasks of the same thread
+	 */
+	private static class TaskFrame {
+		private final State state = new State();
+		private final GameContext context = new GameContext();
+	}
+
+	/**
+	 * Thread of the pool, it owns the counters written by the tasks it runs and their frames. A thread
+	 * which waits for the brothers of a node can run other tasks, so each task running on the thread
+	 * has its own frame, like the calls of a stack
+	 */
+	private class SearchThread extends ForkJoinWorkerThread {
+		private final SearchStatistics statistics;
+		private final List<TaskFrame> frames = new ArrayList<TaskFrame>();
+		private int running;
+
+		SearchThread(ForkJoinPool pool) {
+			super(pool);
+			SearchStatistics free = freeCounters.poll();
+			if (free == null) {
+				free = new SearchStatistics();
+				counters.add(free);
+			}
+			this.statistics = free;
+		}
+
+		@Override
+		protected void onTermination(Throwable exception) {
+			freeCounters.add(statistics);
+			super.onTermination(exception);
+		}
+
+		/**
+		 * @return The frame of a task which starts on the thread, it is allocated only the first time
+		 */
+		TaskFrame enter() {
+			if (running == frames.size())
+				frames.add(new TaskFrame());
+			return frames.get(running++);
+		}
+
+		/**
+		 * Frees the frame of the last task started on the thread
+		 */
+		void exit() {
+			running--;
+		}
+	}
+
+	/**
+	 * Searches a state on a copy in a frame of the thread which runs the task, so it can run on any thread
+	 * of the pool. The counters are the ones of the thread
+	 */
+	private class SearchTask extends RecursiveTask<Double> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final State state;
+		private final int move;
+		private final String player;
+		private final int depth;
+		private final int ply;
+		private final double alpha;
+		private final double beta;
+		private final SplitPoint parent;
+		private GameContext context;
+		private SearchStatistics statistics;
+		/**
+		 * Best move of the state searched, Move.NONE if the search has been stopped
+		 */
+		int bestMove = Move.NONE;
+
+		/**
+		 * @param state  the state to search, or the state before the move if a move is specified
+		 * @param move   the move which leads to the state to search, Move.NONE to search the state itself
+		 * @param player the player who has to move in the state to search
+		 * @param depth  remaining depth
+		 * @param ply    distance of the state from the root
+		 * @param parent the node of the brothers, null for the root
+		 */
+		SearchTask(State state, int move, String player, int depth, int ply, double alpha, double beta, SplitPoint parent) {
+			this.state = state;
+			this.move = move;
+			this.player = player;
+			this.depth = depth;
+			this.ply = ply;
+			this.alpha = alpha;
+			this.beta = beta;
+			this.parent = parent;
+		}
+
+		@Override
+		protected Double compute() {
+			SearchThread thread = (SearchThread) Thread.currentThread();
+			statistics = thread.statistics;
+			TaskFrame frame = thread.enter();
+			try {
+				// The state of the node isn't changed while its brothers run, each task copies it into its frame
+				context = frame.context;
+				State child = frame.state;
+				child.copyFrom(state);
+				double value;
+				if (move == Move.NONE) {
+					value = search(child, player, depth, alpha, beta, ply, parent);
+				} else {
+					// The brothers may start after the node has been cut, or with a better alpha than the eldest one
+					game.makeMove(context, child, move, context.getUndo(ply));
+					double alpha = Math.max(this.alpha, parent.alpha);
+					value = -search(child, TimeLimitedSearch.getOtherPlayer(player), depth - 1, -beta, -alpha, ply + 1,
+							parent);
+					if (!parent.isCut() && !timer.isStopped())
+						parent.update(value, move);
+				}
+				return value;
+			} finally {
+				thread.exit();
+			}
+		}
+
+		/**
+		 * @param player the player who has to move in the state
+		 * @param node   the nearest node searched in parallel, it tells if the search must stop
+		 * @return The score of the state for the player who has to move
+		 */
+		private double search(State state, String player, int depth, double alpha, double beta, int ply, SplitPoint node) {
+			statistics.visit(ply);
+			if (game.isTerminal(state) || depth <= 0)
+				return -eval(state, TimeLimitedSearch.getOtherPlayer(player), statistics);
+			// The clock is read once every TimeManager.CHECK_INTERVAL nodes of the thread
+			if (timer.isStopped(statistics.nodes) || (node != null && node.isCut()))
+				return 0; // the result will be ignored
+
+			long key = state.getKey();
+			long entry = table.probe(key);
+			statistics.tableProbes++;
+			if (TimeLimitedSearch.isUsable(entry, depth, alpha, beta)) {
+				statistics.tableHits++;
+				if (ply == 0)
+					bestMove = TranspositionTable.getMove(entry);
+				if (ply > 0 || bestMove != Move.NONE)
+					return TranspositionTable.getScore(entry);
+			}
+			double alphaOrig = alpha;
+			int[] moves = context.getMoveBuffer(ply);
+			int numMoves = game.getMoves(state, moves);
+			moveFirst(moves, numMoves, TranspositionTable.getMove(entry));
+
+			double value = Double.NEGATIVE_INFINITY;
+			int best = Move.NONE;
+			int first = 0;
+			Undo undo = context.getUndo(ply);
+			// The eldest brother is always searched serially, the young brothers too near the leaves
+			for (; first < numMoves; first++) {
+				game.makeMove(context, state, moves[first], undo);
+				double childValue = -search(state, TimeLimitedSearch.getOtherPlayer(player), depth - 1, -beta, -alpha,
+						ply + 1, node);
+				game.unmakeMove(context, state, undo);
+				if (childValue > value) {
+					value = childValue;
+					best = moves[first];
+				}
+				if (value >= beta) {
+					statistics.cuts++;
+					return store(key, depth, TranspositionTable.LOWER, value, best, ply, node);
+				}
+				alpha = Math.max(alpha, value);
+				if (depth >= SPLIT_DEPTH && first + 2 < numMoves) {
+					first++;
+					break;
+				}
+			}
+
+			if (first < numMoves) {
+				// The young brothers become tasks which can be stolen by the other threads
+				SplitPoint split = new SplitPoint(node, alpha, beta);
+				split.update(value, best);
+				List<SearchTask> brothers = new ArrayList<SearchTask>(numMoves - first);
+				for (int i = first; i < numMoves; i++)
+					brothers.add(new SearchTask(state, moves[i], player, depth, ply, alpha, beta, split));
+				ForkJoinTask.invokeAll(brothers);
+				if (split.cut)
+					statistics.cuts++;
+				value = split.bestValue;
+				best = split.bestMove;
+			}
+
+			int bound = value >= beta ? TranspositionTable.LOWER
+					: value <= alphaOrig ? TranspositionTable.UPPER : TranspositionTable.EXACT;
+			return store(key, depth, bound, value, best, ply, node);
+		}
+
+		/**
+		 * Stores a result in the transposition table, unless the search has been stopped
+		 * @return The value stored
+		 */
+		private double store(long key, int depth, int bound, double value, int move, int ply, SplitPoint node) {
+			if (timer.isStopped() || (node != null && node.isCut()))
+				return value;
+			table.store(key, depth, bound, value, move);
+			if (ply == 0)
+				bestMove = move;
+			return value;
+		}
+	}
+
+	/**
+	 * Moves the specified move at the beginning of the buffer
+	 * @param move the move to try first, Move.NONE to leave the buffer as it is
+	 */
+	private static void moveFirst(int[] moves, int numMoves, int move) {
+		if (move == Move.NONE)
+			return;
+		for (int i = 1; i < numMoves; i++)
+			if (moves[i] == move) {
+				moves[i] = moves[0];
+				moves[0] = move;
+				return;
+			}
+	}
+}
@@ -15,7 +15,11 @@ import domain.State;
 import domain.StateGson;
 import domain.TablutGame;
 import domain.State.Turn;
+import ai.MonteCarloTreeSearch;
 import ai.TimeLimitedSearch;
+import ai.TimeManager;
+import ai.YoungBrothersWaitSearch;
+import aima.core.search.adversarial.AdversarialSearch;
 import utils.StreamUtils;
 
 /**
@@ -56,6 +60,19 @@ public class ClientTablut implements Runnable {
 	 * The action choosen must be sent to the server before this timeout
 	 */
 	private int timeoutServer = 60; 
+	/**
+	 * Size in megabytes of the transposition table used by the search
+	 */
+	private int transpositionTableSize = TimeLimitedSearch.DEFAULT_TABLE_SIZE;
+	/**
+	 * Parallel search used: "smp" for TimeLimitedSearch, "ybwc" for YoungBrothersWaitSearch, "mcts" for
+	 * MonteCarloTreeSearch
+	 */
+	private String searchType = "smp";
+	/**
+	 * If {@code true} the Lazy SMP search goes on during the opponent's turn, see TimeLimitedSearch.ponder
+	 */
+	private boolean pondering = true;
 
 	public ClientTablut(String player) throws UnknownHostException, IOException {
 		this(player, 60, "localhost", -1 );
@@ -94,7 +111,7 @@ public class ClientTablut implements Runnable {
 	}
 
 	/**
-	 * @param args (white|black) [[[serverTimeout] serverAddress] debugTimeSearch]
+	 * @param args (white|black) [[[[serverTimeout] serverAddress] debugTimeSearch] (smp|ybwc|mcts)]
 	 * @throws Exception
 	 * @author R.Vasumini, A.Solini
 	 */
@@ -103,7 +120,7 @@ public class ClientTablut implements Runnable {
 		ClientTablut client = null;
 		//Checks Argument
 		try {
-			if(args.length >= 1 && args.length <= 4){
+			if(args.length >= 1 && args.length <= 5){
 				player = args[0];
 				
 				if (!(player.equalsIgnoreCase("white") || player.equalsIgnoreCase("black"))){	
@@ -120,10 +137,12 @@ public class ClientTablut implements Runnable {
 				} else if(args.length == 3){
 					int timeoutServer = Integer.parseInt(args[1]);
 					client = new ClientTablut(player, timeoutServer, args[2]);
-				}  else if(args.length == 4){
+				}  else if(args.length >= 4){
 					int timeoutServer = Integer.parseInt(args[1]);
 					int debugTimeSearch = Integer.parseInt(args[3]);
 					client = new ClientTablut(player, timeoutServer, args[2], debugTimeSearch);
+					if(args.length == 5)
+						client.setSearchType(args[4]);
 				}		
 			}
 		} catch (InvalidParameterException e) {
@@ -137,6 +156,23 @@ public class ClientTablut implements Runnable {
 		client.run();
 	}//main
 
+	/**
+	 * @param searchType "smp" for the Lazy SMP search, "ybwc" for the Young Brothers Wait search, "mcts" for
+	 * the Monte Carlo tree search
+	 */
+	public void setSearchType(String searchType) {
+		if (!(searchType.equalsIgnoreCase("smp") || searchType.equalsIgnoreCase("ybwc") || searchType.equalsIgnoreCase("mcts")))
+			throw new InvalidParameterException("The search must be smp, ybwc or mcts");
+		this.searchType = searchType;
+	}
+
+	/**
+	 * @param pondering {@code true} to search during the opponent's turn
+	 */
+	public void setPondering(boolean pondering) {
+		this.pondering = pondering;
+	}
+
 	/**
 	 * Main Thread code
 	 * @author R.Vasumini, A.Solini
@@ -158,7 +194,25 @@ public class ClientTablut implements Runnable {
 		else if(timeoutServer >= 5)
 			searchTime = timeoutServer - 3;
 
-		TimeLimitedSearch search = new TimeLimitedSearch(rules, TablutGame.minValue, TablutGame.maxValue, searchTime);
+		//The search threads are created once and kept alive for the whole game
+		int threads = Runtime.getRuntime().availableProcessors();
+		AdversarialSearch<State, Action> search;
+		TimeManager timeManager;
+		if(searchType.equalsIgnoreCase("ybwc")){
+			YoungBrothersWaitSearch ybwc = new YoungBrothersWaitSearch(rules, TablutGame.minValue, TablutGame.maxValue, searchTime, transpositionTableSize);
+			timeManager = ybwc.getTimeManager();
+			search = ybwc;
+		}else if(searchType.equalsIgnoreCase("mcts")){
+			MonteCarloTreeSearch mcts = new MonteCarloTreeSearch(rules, TablutGame.minValue, TablutGame.maxValue, searchTime,
+					MonteCarloTreeSearch.DEFAULT_TREE_SIZE, TimeLimitedSearch.newWorkerPool(threads), threads);
+			timeManager = mcts.getTimeManager();
+			search = mcts;
+		}else{
+			TimeLimitedSearch smp = new TimeLimitedSearch(rules, TablutGame.minValue, TablutGame.maxValue, searchTime, transpositionTableSize,
+					TimeLimitedSearch.newWorkerPool(threads), threads);
+			timeManager = smp.getTimeManager();
+			search = smp;
+		}
 		//Prints	AI of d Tiger
 		System.out.println("          _____          __       _   _______ _                 ");
 		System.out.println("    /\\   |_   _|        / _|     | | |__   __(_)                ");
@@ -175,6 +229,9 @@ public class ClientTablut implements Runnable {
 			while(true){
 				//The use of StateGson is due to correctly receive the state from the server
 				StateGson temp =  this.gson.fromJson(StreamUtils.readString(in), StateGson.class);
+				//The time of the search is counted from now, the server's timeout too
+				if (temp.getTurn() == player)
+					timeManager.stateReceived();
 				// Opponent turn
 				if (temp.getTurn() == opponent) {
 					System.out.println("Waiting for your opponent move... ");
@@ -192,14 +249,11 @@ public class ClientTablut implements Runnable {
 					else
 						state.setOldNumPawn(player, state.getNumBlack());
 						
-					//Updates opponent's actions' map keyset after his move
-					state.updateOpponentPossibleActionsKeySet(opponent);
+					//Updates the king position after the opponent's move
+					state.updateCurrentKingPosition();
 					//Updates opponent's possible actions
 					state.updatePossibleActions(opponent);
-					
-					//Removes from my actions' keyset the pawns that I've lost
-					state.eatenUpdate(state.getBoard(), player);
-					//Updates my possible actions
+					//Updates my possible actions, the pawns that I've lost have none
 					state.updatePossibleActions(player);
 					//Updates the turn number after the opponent's move
 					state.incrementTurnNumber();
@@ -224,7 +278,7 @@ public class ClientTablut implements Runnable {
 	 * @param search Instance of the intelligent search class used
 	 * @author R.Vasumini, A.Solini
 	 */
-	public void play(State state, TablutGame rules, TimeLimitedSearch search){
+	public void play(State state, TablutGame rules, AdversarialSearch<State, Action> search){
 		Turn turn = state.getTurn();
 		//Player turn
 		if (turn == player) {
@@ -239,17 +293,13 @@ public class ClientTablut implements Runnable {
 				long fine = System.currentTimeMillis();
 				System.out.println("Ricerca della mossa effettuata in " + (fine-inizio) + "ms");
 				try {
-					//Checks move validity and executes it
+					//Executes the move, it has been generated by the rules so it isn't checked again
 					state = rules.makeMove(state, selectedAction);
-					//After my move updates the key "from" of the moved pawn
-					state.updatePossibleActionsKeySet(selectedAction.getFrom(), selectedAction.getTo(), player);
 					//Updates opponent's old pawns number in case I've captured some of them
 					if(opponent == Turn.WHITE)
 						state.setOldNumPawn(opponent, state.getNumWhite());
 					else
 						state.setOldNumPawn(opponent, state.getNumBlack());
-					//Removes the opponent's captured pawns from his actions'map
-					state.eatenUpdate(state.getBoard(), opponent);
 					//Updates opponent's possible actions
 					state.updatePossibleActions(opponent);
 					done = true;
@@ -269,6 +319,9 @@ public class ClientTablut implements Runnable {
 			} catch (IOException e) {
 				e.printStackTrace();
 			}
+			//Searches on the opponent's time the reply expected, the table is filled for the next turn
+			if (pondering && search instanceof TimeLimitedSearch)
+				((TimeLimitedSearch) search).ponder(state);
 		}
 		// Win or Lost
 		else if (turn == Turn.WHITEWIN || turn == Turn.BLACKWIN) {
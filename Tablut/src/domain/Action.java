@@ -86,28 +86,28 @@ public class Action implements Serializable, Comparable<Action> {
 	 * @return means the index of the column where the pawn is moved from
 	 */
 	public int getColumnFrom() {
-		return Character.toLowerCase(this.from.charAt(0)) - 97;
+		return Character.toLowerCase(this.from.charAt(0)) - 'a';
 	}
 
 	/**
 	 * @return means the index of the column where the pawn is moved to
 	 */
 	public int getColumnTo() {
-		return Character.toLowerCase(this.to.charAt(0)) - 97;
+		return Character.toLowerCase(this.to.charAt(0)) - 'a';
 	}
 
 	/**
 	 * @return means the index of the row where the pawn is moved from
 	 */
 	public int getRowFrom() {
-		return Integer.parseInt(this.from.charAt(1) + "") - 1;
+		return this.from.charAt(1) - '1';
 	}
 
 	/**
 	 * @return means the index of the row where the pawn is moved to
 	 */
 	public int getRowTo() {
-		return Integer.parseInt(this.to.charAt(1) + "") - 1;
+		return this.to.charAt(1) - '1';
 	}
 
 	/**
@@ -1,7 +1,7 @@
 package domain;
 
 import java.io.Serializable;
-import java.util.HashMap;
+import java.util.Arrays;
 
 public class Board implements Serializable {
 
@@ -76,171 +76,620 @@ public class Board implements Serializable {
 		}
 	}
 	/**
-	 * HashMap that associates  board's boxes to the corresponding Position
+	 * Number of rows and columns of the board
 	 */
-	protected HashMap<String, Position> positions  = new HashMap<String, Position>();
+	public static final int SIZE = 9;
 
-	protected HashMap<Diagonal, String[]> diagonals  = new HashMap<Diagonal, String[]>();
+	/**
+	 * Number of boxes of the board, a box is identified by the index {@code row * SIZE + column}
+	 */
+	public static final int SQUARES = SIZE * SIZE;
+
+	/**
+	 * Index of the throne box
+	 */
+	public static final int THRONE_SQUARE = 4 * SIZE + 4;
 
-	protected HashMap<Diagonal, String[]> backDiagonals  = new HashMap<Diagonal, String[]>();
+	/*
+	 * Indexes of the ray directions used by the bitboard tables
+	 */
+	public static final int UP = 0, DOWN = 1, LEFT = 2, RIGHT = 3;
 
-	protected HashMap<Citadel, String[]> citadels  = new HashMap<Citadel, String[]>();
+	/*
+	 * Bitboard masks. Every set of boxes is stored in two longs: the low word holds the boxes 0..63,
+	 * the high word the boxes 64..80
+	 */
+	public static final long CITADELS_LO, CITADELS_HI;
+	public static final long THRONE_LO, THRONE_HI;
+	public static final long STARTWHITE_LO, STARTWHITE_HI;
+	/**
+	 * Boxes on the edge of the board that the king can reach to win (the edge without the citadels)
+	 */
+	public static final long ESCAPES_LO, ESCAPES_HI;
+	/**
+	 * Citadel boxes which are hostile to the black pawns captured by the white: all the citadels except the middle ones
+	 */
+	public static final long CITADELS_HOSTILE_LO, CITADELS_HOSTILE_HI;
+	public static final long[] ROW_LO = new long[SIZE], ROW_HI = new long[SIZE];
+	public static final long[] COLUMN_LO = new long[SIZE], COLUMN_HI = new long[SIZE];
+	/**
+	 * Boxes orthogonally adjacent to each box
+	 */
+	public static final long[] NEIGHBOURS_LO = new long[SQUARES], NEIGHBOURS_HI = new long[SQUARES];
+	/**
+	 * Boxes from each box (excluded) to the edge of the board, indexed by direction and box
+	 */
+	public static final long[][] RAY_LO = new long[4][SQUARES], RAY_HI = new long[4][SQUARES];
 	/**
-	 * Matrix of Pawns representing the board
+	 * Sliding move tables indexed by box and by occupancy of its row (or column): they hold the first and the last
+	 * column (or row) that a pawn in the box can reach, packed as {@code (first << 4) | last}. The rules are already
+	 * applied, the throne can't be reached nor crossed and the citadel boxes can be reached only by a pawn which
+	 * hasn't left its citadel yet
 	 */
-	protected Pawn board[][];
+	private static final byte[][] ROW_SPANS = new byte[SQUARES][1 << SIZE], COLUMN_SPANS = new byte[SQUARES][1 << SIZE];
+	/**
+	 * Strings of the boxes indexed by box
+	 */
+	private static final String[] BOXES = new String[SQUARES];
 
-	public Board(){
-		setBackDiagonals();
-		setDiagonals();
-		setPositions();
-		setCitadels();
-		this.board = new Pawn[9][9];
-		//Sets all boxes to empty
-		for (int i = 0; i < 9; i++) 
-			for (int j = 0; j < 9; j++) 
-				this.board[i][j] = Pawn.EMPTY;
+	/*
+	 * Flags of the attributes of a box, the citadel number (Citadel ordinal + 1, 0 for the other boxes)
+	 * is stored from the bit CITADEL_SHIFT
+	 */
+	public static final int CITADEL = 1, THRONE = 2, STARTWHITE = 4, ESCAPE = 8;
+	public static final int CITADEL_SHIFT = 4;
+	/**
+	 * Attributes of every box, indexed by box
+	 */
+	private static final byte[] ATTRIBUTES = new byte[SQUARES];
+	/**
+	 * Boxes of the diagonals that the black pawns can close in front of the escapes, indexed by Diagonal ordinal
+	 */
+	public static final long[] DIAGONALS_LO = new long[Diagonal.values().length], DIAGONALS_HI = new long[Diagonal.values().length];
+	/**
+	 * Boxes between each diagonal and the corner of the board, indexed by Diagonal ordinal
+	 */
+	public static final long[] BACK_DIAGONALS_LO = new long[Diagonal.values().length], BACK_DIAGONALS_HI = new long[Diagonal.values().length];
+	/**
+	 * Boxes of each citadel, indexed by Citadel ordinal
+	 */
+	public static final long[] CITADEL_LO = new long[Citadel.values().length], CITADEL_HI = new long[Citadel.values().length];
+	/*
+	 * Key and column occupancy of the starting board, copied by the constructor
+	 */
+	private static final long START_KEY;
+	private static final int[] START_COLUMNS = new int[SIZE];
+
+	static {
+		for (int i = 0; i < SQUARES; i++)
+			BOXES[i] = (char) ('a' + i % SIZE) + "" + (i / SIZE + 1);
+
+		long[] mask = new long[2];
+		String[][] citadels = {
+				{"a4", "a5", "a6", "b5"},
+				{"i4", "i5", "i6", "h5"},
+				{"d1", "e1", "f1", "e2"},
+				{"d9", "e9", "f9", "e8"}};
+		for (Citadel citadel : Citadel.values()) {
+			long[] citadelMask = new long[2];
+			for (String box : citadels[citadel.ordinal()]) {
+				citadelMask = with(citadelMask, toSquare(box));
+				ATTRIBUTES[toSquare(box)] = (byte) (CITADEL | (citadel.ordinal() + 1) << CITADEL_SHIFT);
+			}
+			CITADEL_LO[citadel.ordinal()] = citadelMask[0];
+			CITADEL_HI[citadel.ordinal()] = citadelMask[1];
+			mask[0] |= citadelMask[0];
+			mask[1] |= citadelMask[1];
+		}
+		CITADELS_LO = mask[0];
+		CITADELS_HI = mask[1];
+		for (String box : new String[]{"a5", "i5", "e1", "e9"})
+			mask = without(mask, toSquare(box));
+		CITADELS_HOSTILE_LO = mask[0];
+		CITADELS_HOSTILE_HI = mask[1];
+
+		mask = with(new long[2], THRONE_SQUARE);
+		THRONE_LO = mask[0];
+		THRONE_HI = mask[1];
+		ATTRIBUTES[THRONE_SQUARE] = THRONE;
+
+		mask = new long[2];
+		for (String box : new String[]{"c5", "d5", "f5", "g5", "e3", "e4", "e6", "e7"}) {
+			mask = with(mask, toSquare(box));
+			ATTRIBUTES[toSquare(box)] = STARTWHITE;
+		}
+		STARTWHITE_LO = mask[0];
+		STARTWHITE_HI = mask[1];
+
+		mask = new long[2];
+		for (int i = 0; i < SIZE; i++) {
+			mask = with(mask, toSquare(0, i));
+			mask = with(mask, toSquare(SIZE - 1, i));
+			mask = with(mask, toSquare(i, 0));
+			mask = with(mask, toSquare(i, SIZE - 1));
+		}
+		ESCAPES_LO = mask[0] & ~CITADELS_LO;
+		ESCAPES_HI = mask[1] & ~CITADELS_HI;
+		for (int square = 0; square < SQUARES; square++)
+			if (contains(ESCAPES_LO, ESCAPES_HI, square))
+				ATTRIBUTES[square] |= ESCAPE;
+
+		String[][] diagonals = new String[Diagonal.values().length][];
+		String[][] backDiagonals = new String[Diagonal.values().length][];
+		diagonals[Diagonal.LEFTDOWNBIG.ordinal()] = new String[]{"b7", "c8"};
+		diagonals[Diagonal.LEFTDOWNSMALL.ordinal()] = new String[]{"c6", "d7"};
+		diagonals[Diagonal.LEFTUPBIG.ordinal()] = new String[]{"b3", "c2"};
+		diagonals[Diagonal.LEFTUPSMALL.ordinal()] = new String[]{"c4", "d3"};
+		diagonals[Diagonal.RIGHTDOWNBIG.ordinal()] = new String[]{"g8", "h7"};
+		diagonals[Diagonal.RIGHTDOWNSMALL.ordinal()] = new String[]{"f7", "g6"};
+		diagonals[Diagonal.RIGHTUPBIG.ordinal()] = new String[]{"g2", "h3"};
+		diagonals[Diagonal.RIGHTUPSMALL.ordinal()] = new String[]{"f3", "g4"};
+		backDiagonals[Diagonal.LEFTDOWNBIG.ordinal()] = new String[]{"a7", "a8", "a9", "b8", "b9", "c9"};
+		backDiagonals[Diagonal.LEFTDOWNSMALL.ordinal()] = new String[]{"a7", "a8", "a9", "b8", "b9", "c9", "b6", "b7", "c7", "c8", "d8"};
+		backDiagonals[Diagonal.LEFTUPBIG.ordinal()] = new String[]{"a1", "b1", "c1", "a2", "a3", "b2"};
+		backDiagonals[Diagonal.LEFTUPSMALL.ordinal()] = new String[]{"a1", "b1", "c1", "a2", "a3", "b2", "b3", "c2", "b4", "c3", "d2"};
+		backDiagonals[Diagonal.RIGHTDOWNBIG.ordinal()] = new String[]{"i7", "i8", "i9", "g9", "h9", "h8"};
+		backDiagonals[Diagonal.RIGHTDOWNSMALL.ordinal()] = new String[]{"i7", "i8", "i9", "g9", "h9", "h8", "g8", "h7", "f8", "g7", "h6"};
+		backDiagonals[Diagonal.RIGHTUPBIG.ordinal()] = new String[]{"i3", "i2", "i1", "g1", "h1", "h2"};
+		backDiagonals[Diagonal.RIGHTUPSMALL.ordinal()] = new String[]{"i3", "i2", "i1", "g1", "h1", "h2", "g2", "h3", "f2", "g3", "h4"};
+		for (Diagonal diagonal : Diagonal.values()) {
+			int i = diagonal.ordinal();
+			mask = new long[2];
+			for (String box : diagonals[i])
+				mask = with(mask, toSquare(box));
+			DIAGONALS_LO[i] = mask[0];
+			DIAGONALS_HI[i] = mask[1];
+			mask = new long[2];
+			for (String box : backDiagonals[i])
+				mask = with(mask, toSquare(box));
+			BACK_DIAGONALS_LO[i] = mask[0];
+			BACK_DIAGONALS_HI[i] = mask[1];
+		}
 
-		//Puts pawns on the board
-		for(String box : positions.keySet()){
-			if (positions.get(box).equals(Position.CITADEL))
-				this.board[getRow(box)][getColumn(box)] = Pawn.BLACK;
-			
-			else if(positions.get(box).equals(Position.STARTWHITE))
-				this.board[getRow(box)][getColumn(box)] = Pawn.WHITE;
-			
-			else if(positions.get(box).equals(Position.THRONE))
-				this.board[getRow(box)][getColumn(box)] = Pawn.KING;		
+		for (int row = 0; row < SIZE; row++) {
+			for (int column = 0; column < SIZE; column++) {
+				int square = toSquare(row, column);
+				mask = with(new long[2], square);
+				ROW_LO[row] |= mask[0];
+				ROW_HI[row] |= mask[1];
+				COLUMN_LO[column] |= mask[0];
+				COLUMN_HI[column] |= mask[1];
+
+				mask = new long[2];
+				for (int i = row - 1; i >= 0; i--)
+					mask = with(mask, toSquare(i, column));
+				RAY_LO[UP][square] = mask[0];
+				RAY_HI[UP][square] = mask[1];
+				mask = new long[2];
+				for (int i = row + 1; i < SIZE; i++)
+					mask = with(mask, toSquare(i, column));
+				RAY_LO[DOWN][square] = mask[0];
+				RAY_HI[DOWN][square] = mask[1];
+				mask = new long[2];
+				for (int i = column - 1; i >= 0; i--)
+					mask = with(mask, toSquare(row, i));
+				RAY_LO[LEFT][square] = mask[0];
+				RAY_HI[LEFT][square] = mask[1];
+				mask = new long[2];
+				for (int i = column + 1; i < SIZE; i++)
+					mask = with(mask, toSquare(row, i));
+				RAY_LO[RIGHT][square] = mask[0];
+				RAY_HI[RIGHT][square] = mask[1];
+
+				mask = new long[2];
+				if (row > 0)
+					mask = with(mask, toSquare(row - 1, column));
+				if (row < SIZE - 1)
+					mask = with(mask, toSquare(row + 1, column));
+				if (column > 0)
+					mask = with(mask, toSquare(row, column - 1));
+				if (column < SIZE - 1)
+					mask = with(mask, toSquare(row, column + 1));
+				NEIGHBOURS_LO[square] = mask[0];
+				NEIGHBOURS_HI[square] = mask[1];
+			}
+		}
+
+		for (int square = 0; square < SQUARES; square++) {
+			int row = square / SIZE, column = square % SIZE;
+			for (int occupancy = 0; occupancy < (1 << SIZE); occupancy++) {
+				ROW_SPANS[square][occupancy] = (byte) (reach(square, occupancy, row, column, -1, true) << 4
+						| reach(square, occupancy, row, column, 1, true));
+				COLUMN_SPANS[square][occupancy] = (byte) (reach(square, occupancy, column, row, -1, false) << 4
+						| reach(square, occupancy, column, row, 1, false));
+			}
 		}
+
+		long key = 0;
+		for (int square = 0; square < SQUARES; square++) {
+			if (isCitadel(square))
+				key ^= Zobrist.pawn(Pawn.BLACK, square);
+			else if ((ATTRIBUTES[square] & STARTWHITE) != 0)
+				key ^= Zobrist.pawn(Pawn.WHITE, square);
+			else if (isThrone(square))
+				key ^= Zobrist.pawn(Pawn.KING, square);
+			else
+				continue;
+			START_COLUMNS[square % SIZE] |= 1 << (square / SIZE);
+		}
+		START_KEY = key;
 	}
 
-	public static Board getEmptyBoard(){
-		Board board = new Board();
-		for (int i = 0; i < 9; i++) 
-			for (int j = 0; j < 9; j++) 
-				board.setPawn(i, j, Pawn.EMPTY);
-		return board;
+	/**
+	 * Walks a line of the board from a box, used to build the sliding move tables
+	 * @param from the box of the pawn
+	 * @param occupancy occupied boxes of the line, the bit {@code i} is the i-th box of the line
+	 * @param line index of the row or of the column
+	 * @param start position of the box in the line
+	 * @param step 1 or -1
+	 * @param isRow {@code true} if the line is a row
+	 * @return The last position of the line that the pawn can reach
+	 */
+	private static int reach(int from, int occupancy, int line, int start, int step, boolean isRow){
+		boolean inCitadel = isCitadel(from);
+		int last = start;
+		for (int i = start + step; i >= 0 && i < SIZE; i += step) {
+			int square = isRow ? toSquare(line, i) : toSquare(i, line);
+			if ((occupancy & (1 << i)) != 0 || isThrone(square))
+				break;
+			if (isCitadel(square)) {
+				if (!inCitadel)
+					break;
+			}
+			else
+				inCitadel = false;
+			last = i;
+		}
+		return last;
 	}
 
-	private void setDiagonals(){
+	/*
+	 * Bitboards of the pawns on the board, one pair of words for each kind of pawn
+	 */
+	protected long whiteLo, whiteHi;
+	protected long blackLo, blackHi;
+	protected long kingLo, kingHi;
+	/**
+	 * Zobrist key of the pawns on the board, it is updated every time a pawn is put, moved or removed
+	 */
+	protected long key;
+	/**
+	 * Occupancy of every column, the bit {@code row} is set if the box is not empty: it's the transposed copy
+	 * of the bitboards used to look up the vertical moves
+	 */
+	protected final int[] columns = new int[SIZE];
 
-		this.diagonals.put(Diagonal.LEFTDOWNBIG, new String[]{"b7", "c8"});
+	public Board(){
+		//Puts pawns on the board
+		this.blackLo = CITADELS_LO;
+		this.blackHi = CITADELS_HI;
+		this.whiteLo = STARTWHITE_LO;
+		this.whiteHi = STARTWHITE_HI;
+		this.kingLo = THRONE_LO;
+		this.kingHi = THRONE_HI;
+		this.key = START_KEY;
+		System.arraycopy(START_COLUMNS, 0, this.columns, 0, SIZE);
+	}
 
-		this.diagonals.put(Diagonal.LEFTDOWNSMALL, new String[]{"c6", "d7"});
+	/**
+	 * Copies the pawns of the specified board into this one
+	 * @param other the board to copy
+	 */
+	public void copyFrom(Board other){
+		this.whiteLo = other.whiteLo;
+		this.whiteHi = other.whiteHi;
+		this.blackLo = other.blackLo;
+		this.blackHi = other.blackHi;
+		this.kingLo = other.kingLo;
+		this.kingHi = other.kingHi;
+		this.key = other.key;
+		System.arraycopy(other.columns, 0, this.columns, 0, SIZE);
+	}
 
-		this.diagonals.put(Diagonal.LEFTUPBIG, new String[]{"b3", "c2"});
+	public static Board getEmptyBoard(){
+		Board board = new Board();
+		board.whiteLo = board.whiteHi = 0;
+		board.blackLo = board.blackHi = 0;
+		board.kingLo = board.kingHi = 0;
+		board.key = 0;
+		Arrays.fill(board.columns, 0);
+		return board;
+	}
 
-		this.diagonals.put(Diagonal.LEFTUPSMALL, new String[]{"c4", "d3"});
+	/**
+	 * @param row row of the box
+	 * @param column column of the box
+	 * @return the index of the box, from 0 to {@code SQUARES - 1}
+	 */
+	public static int toSquare(int row, int column){
+		return row * SIZE + column;
+	}
 
-		this.diagonals.put(Diagonal.RIGHTDOWNBIG, new String[]{"g8", "h7"});
+	/**
+	 * @param box string of the box, for example "e5"
+	 * @return the index of the box, from 0 to {@code SQUARES - 1}
+	 */
+	public static int toSquare(String box){
+		return toSquare(box.charAt(1) - '1', Character.toLowerCase(box.charAt(0)) - 'a');
+	}
 
-		this.diagonals.put(Diagonal.RIGHTDOWNSMALL, new String[]{"f7", "g6"});
+	/**
+	 * @param square index of the box
+	 * @return the string of the box, for example "e5", the same instance is returned at every call
+	 */
+	public static String toBox(int square){
+		return BOXES[square];
+	}
 
-		this.diagonals.put(Diagonal.RIGHTUPBIG, new String[]{"g2", "h3"});
+	/**
+	 * @return {@code true} if the box is set in the bitboard made of the words {@code lo} and {@code hi}
+	 */
+	public static boolean contains(long lo, long hi, int square){
+		return square < 64 ? (lo & (1L << square)) != 0 : (hi & (1L << (square - 64))) != 0;
+	}
 
-		this.diagonals.put(Diagonal.RIGHTUPSMALL, new String[]{"f3", "g4"});
+	private static long[] with(long[] mask, int square){
+		if (square < 64)
+			mask[0] |= 1L << square;
+		else
+			mask[1] |= 1L << (square - 64);
+		return mask;
 	}
 
-	private void setBackDiagonals(){
+	private static long[] without(long[] mask, int square){
+		if (square < 64)
+			mask[0] &= ~(1L << square);
+		else
+			mask[1] &= ~(1L << (square - 64));
+		return mask;
+	}
 
-		this.diagonals.put(Diagonal.LEFTDOWNBIG, new String[]{"a7", "a8", "a9", "b8", "b9", "c9"});
+	/**
+	 * @param lo low word of the bitboard
+	 * @param hi high word of the bitboard
+	 * @param increasing {@code true} to look for the box with the lowest index, {@code false} for the highest one
+	 * @return the box set in the bitboard nearest to the start of a ray going in the specified sense, -1 if the bitboard is empty
+	 */
+	public static int nearest(long lo, long hi, boolean increasing){
+		if (increasing) {
+			if (lo != 0)
+				return Long.numberOfTrailingZeros(lo);
+			return hi != 0 ? 64 + Long.numberOfTrailingZeros(hi) : -1;
+		}
+		if (hi != 0)
+			return 127 - Long.numberOfLeadingZeros(hi);
+		return lo != 0 ? 63 - Long.numberOfLeadingZeros(lo) : -1;
+	}
 
-		this.diagonals.put(Diagonal.LEFTDOWNSMALL, new String[]{"a7", "a8", "a9", "b8", "b9", "c9", "b6", "b7", "c7", "c8", "d8"});
+	/**
+	 * @return {@code true} if the specified box is a citadel
+	 */
+	public static boolean isCitadel(int square){
+		return (ATTRIBUTES[square] & CITADEL) != 0;
+	}
 
-		this.diagonals.put(Diagonal.LEFTUPBIG, new String[]{"a1", "b1", "c1", "a2", "a3", "b2"});
+	/**
+	 * @return {@code true} if the specified box is the throne
+	 */
+	public static boolean isThrone(int square){
+		return square == THRONE_SQUARE;
+	}
 
-		this.diagonals.put(Diagonal.LEFTUPSMALL, new String[]{"a1", "b1", "c1", "a2", "a3", "b2", "b3", "c2", "b4", "c3", "d2"});
+	/**
+	 * @return The attributes of the specified box, a combination of the flags CITADEL, THRONE, STARTWHITE and ESCAPE
+	 * with the citadel number in the highest bits
+	 */
+	public static int getAttributes(int square){
+		return ATTRIBUTES[square];
+	}
 
-		this.diagonals.put(Diagonal.RIGHTDOWNBIG, new String[]{"i7", "i8", "i9", "g9", "h9", "h8"});
+	/**
+	 * @return The Position of the specified box, {@code null} if the box is none of them
+	 */
+	public static Position getPosition(int square){
+		int attributes = ATTRIBUTES[square];
+		if ((attributes & CITADEL) != 0)
+			return Position.CITADEL;
+		if ((attributes & THRONE) != 0)
+			return Position.THRONE;
+		if ((attributes & STARTWHITE) != 0)
+			return Position.STARTWHITE;
+		return null;
+	}
 
-		this.diagonals.put(Diagonal.RIGHTDOWNSMALL, new String[]{"i7", "i8", "i9", "g9", "h9", "h8", "g8", "h7", "f8", "g7", "h6"});
+	/**
+	 * @return The Citadel the specified box belongs to, {@code null} if the box is not a citadel
+	 */
+	public static Citadel getCitadel(int square){
+		int id = ATTRIBUTES[square] >>> CITADEL_SHIFT;
+		return id == 0 ? null : Citadel.values()[id - 1];
+	}
 
-		this.diagonals.put(Diagonal.RIGHTUPBIG, new String[]{"i3", "i2", "i1", "g1", "h1", "h2"});
+	/**
+	 * @return {@code true} if the two boxes of the diagonal are occupied by black pawns
+	 */
+	public boolean isBlackDiagonal(Diagonal diagonal){
+		long lo = DIAGONALS_LO[diagonal.ordinal()], hi = DIAGONALS_HI[diagonal.ordinal()];
+		return (this.blackLo & lo) == lo && (this.blackHi & hi) == hi;
+	}
 
-		this.diagonals.put(Diagonal.RIGHTUPSMALL, new String[]{"i3", "i2", "i1", "g1", "h1", "h2", "g2", "h3", "f2", "g3", "h4"});
+	/**
+	 * @return {@code true} if all the boxes between the diagonal and the corner of the board are empty
+	 */
+	public boolean isEmptyBehind(Diagonal diagonal){
+		int i = diagonal.ordinal();
+		return ((this.whiteLo | this.blackLo | this.kingLo) & BACK_DIAGONALS_LO[i]) == 0
+				&& ((this.whiteHi | this.blackHi | this.kingHi) & BACK_DIAGONALS_HI[i]) == 0;
 	}
 
-	private void setCitadels(){
-		this.citadels.put(Citadel.LEFT, new String[]{"a4", "a5", "a6", "b5"});
+	/**
+	 * @return A matrix of Pawns representing the board
+	 */
+	public Pawn[][] getBoard(){
+		Pawn[][] board = new Pawn[SIZE][SIZE];
+		for (int i = 0; i < SIZE; i++) 
+			for (int j = 0; j < SIZE; j++) 
+				board[i][j] = getPawn(i, j);
+		return board;
+	}
 
-		this.citadels.put(Citadel.RIGHT, new String[]{"i4", "i5", "i6", "h5"});
+	/**
+	 * Sets the pawns of the board from a matrix, the THRONE pawn of the server is an empty throne
+	 * @param board matrix of Pawns representing the board
+	 */
+	public void setBoard(Pawn[][] board){
+		this.whiteLo = this.whiteHi = 0;
+		this.blackLo = this.blackHi = 0;
+		this.kingLo = this.kingHi = 0;
+		this.key = 0;
+		Arrays.fill(this.columns, 0);
+		for (int i = 0; i < SIZE; i++) 
+			for (int j = 0; j < SIZE; j++) 
+				setPawn(i, j, board[i][j]);
+	}
 
-		this.citadels.put(Citadel.UP, new String[]{"d1", "e1", "f1", "e2"});
+	/**
+	 * This function tells the pawn inside a specific box on the board
+	 * @param square index of the box
+	 * @return is the pawn of the box
+	 */
+	public Pawn getPawn(int square) {
+		if (square < 64) {
+			long bit = 1L << square;
+			if (((this.whiteLo | this.blackLo | this.kingLo) & bit) == 0)
+				return Pawn.EMPTY;
+			if ((this.blackLo & bit) != 0)
+				return Pawn.BLACK;
+			return (this.whiteLo & bit) != 0 ? Pawn.WHITE : Pawn.KING;
+		}
+		long bit = 1L << (square - 64);
+		if (((this.whiteHi | this.blackHi | this.kingHi) & bit) == 0)
+			return Pawn.EMPTY;
+		if ((this.blackHi & bit) != 0)
+			return Pawn.BLACK;
+		return (this.whiteHi & bit) != 0 ? Pawn.WHITE : Pawn.KING;
+	}
 
-		this.citadels.put(Citadel.DOWN, new String[]{"d9", "e9", "f9", "e8"});
+	/**
+	 * This function tells the pawn inside a specific box on the board
+	 * @param row represents the row of the specific box
+	 * @param column represents the column of the specific box
+	 * @return is the pawn of the box
+	 */
+	public Pawn getPawn(int row, int column) {
+		return getPawn(toSquare(row, column));
 	}
 
-	public HashMap<Diagonal, String[]> getDiagonals(){
-		return this.diagonals;
+	/**
+	 * This function tells the pawn inside a specific box on the board
+	 * @param position string of the box to search in
+	 * @return is the pawn of the box
+	 * @author R.Vasumini, A.Solini
+	 */
+	public Pawn getPawn(String position){
+		return getPawn(toSquare(position));
 	}
 
-	public HashMap<Diagonal, String[]> getBackDiagonals(){
-		return this.backDiagonals;
+	/**
+	 * @return {@code true} if there is a black pawn in the specified box
+	 */
+	public boolean isBlack(int square){
+		return contains(this.blackLo, this.blackHi, square);
 	}
 
-	private void setPositions(){
-		this.positions.put("a4", Position.CITADEL);
-		this.positions.put("a5", Position.CITADEL);
-		this.positions.put("a6", Position.CITADEL);
-		this.positions.put("b5", Position.CITADEL);
-		
-		this.positions.put("i4", Position.CITADEL);
-		this.positions.put("i5", Position.CITADEL);
-		this.positions.put("i6", Position.CITADEL);
-		this.positions.put("h5", Position.CITADEL);
+	/**
+	 * @return {@code true} if there is a white pawn (not the king) in the specified box
+	 */
+	public boolean isWhite(int square){
+		return contains(this.whiteLo, this.whiteHi, square);
+	}
 
-		this.positions.put("d1", Position.CITADEL);
-		this.positions.put("e1", Position.CITADEL);
-		this.positions.put("f1", Position.CITADEL);
-		this.positions.put("e2", Position.CITADEL);
+	/**
+	 * @return {@code true} if there is the king in the specified box
+	 */
+	public boolean isKing(int square){
+		return contains(this.kingLo, this.kingHi, square);
+	}
 
-		this.positions.put("d9", Position.CITADEL);
-		this.positions.put("e9", Position.CITADEL);
-		this.positions.put("f9", Position.CITADEL);
-		this.positions.put("e8", Position.CITADEL);
+	/**
+	 * @return {@code true} if the specified box is empty
+	 */
+	public boolean isEmpty(int square){
+		return !contains(this.whiteLo | this.blackLo | this.kingLo, this.whiteHi | this.blackHi | this.kingHi, square);
+	}
 
-		this.positions.put("e5", Position.THRONE);
+	/**
+	 * A box is hostile to a black pawn if it contains a white pawn or the king, or if it is the throne
+	 * or a citadel, except for the middle box of each citadel
+	 * @return {@code true} if a black pawn next to the specified box can be captured against it
+	 */
+	public boolean isHostileToBlack(int square){
+		return contains(this.whiteLo | this.kingLo | THRONE_LO | CITADELS_HOSTILE_LO,
+				this.whiteHi | this.kingHi | THRONE_HI | CITADELS_HOSTILE_HI, square);
+	}
 
-		this.positions.put("c5", Position.STARTWHITE);
-		this.positions.put("d5", Position.STARTWHITE);
-		this.positions.put("f5", Position.STARTWHITE);
-		this.positions.put("g5", Position.STARTWHITE);
+	/**
+	 * A box is hostile to a white pawn if it contains a black pawn, or if it is the throne or a citadel
+	 * @return {@code true} if a white pawn next to the specified box can be captured against it
+	 */
+	public boolean isHostileToWhite(int square){
+		return contains(this.blackLo | THRONE_LO | CITADELS_LO, this.blackHi | THRONE_HI | CITADELS_HI, square);
+	}
 
-		this.positions.put("e3", Position.STARTWHITE);
-		this.positions.put("e4", Position.STARTWHITE);
-		this.positions.put("e6", Position.STARTWHITE);
-		this.positions.put("e7", Position.STARTWHITE);
+	/**
+	 * @return The number of black pawns orthogonally adjacent to the specified box
+	 */
+	public int numBlackNear(int square){
+		return Long.bitCount(this.blackLo & NEIGHBOURS_LO[square]) + Long.bitCount(this.blackHi & NEIGHBOURS_HI[square]);
 	}
 
-	public HashMap<String, Position> getPositions(){
-		return this.positions;
+	/**
+	 * @return The number of white pawns (not the king) orthogonally adjacent to the specified box
+	 */
+	public int numWhiteNear(int square){
+		return Long.bitCount(this.whiteLo & NEIGHBOURS_LO[square]) + Long.bitCount(this.whiteHi & NEIGHBOURS_HI[square]);
 	}
 
-	public Pawn[][] getBoard(){
-		return this.board;
+	/**
+	 * @return {@code true} if all the boxes adjacent to the specified box, except the throne, contain black pawns
+	 */
+	public boolean isSurroundedByBlack(int square){
+		return (NEIGHBOURS_LO[square] & ~THRONE_LO & ~this.blackLo) == 0 
+			&& (NEIGHBOURS_HI[square] & ~THRONE_HI & ~this.blackHi) == 0;
 	}
-	public void setBoard(Pawn[][] board){
-		this.board = board;
+
+	/**
+	 * @return The number of black pawns on the board
+	 */
+	public int getNumBlack(){
+		return Long.bitCount(this.blackLo) + Long.bitCount(this.blackHi);
 	}
 
 	/**
-	 * This function tells the pawn inside a specific box on the board
-	 * @param row represents the row of the specific box
-	 * @param column represents the column of the specific box
-	 * @return is the pawn of the box
+	 * @return The number of white pawns on the board, king included
 	 */
-	public Pawn getPawn(int row, int column) {
-		return this.board[row][column];
+	public int getNumWhite(){
+		return Long.bitCount(this.whiteLo | this.kingLo) + Long.bitCount(this.whiteHi | this.kingHi);
 	}
 
 	/**
-	 * This function tells the pawn inside a specific box on the board
-	 * @param position string of the box to search in
-	 * @return is the pawn of the box
-	 * @author R.Vasumini, A.Solini
+	 * This function removes a specified pawn from the board
+	 * @param square index of the box
 	 */
-	public Pawn getPawn(String position){
-		return this.board[this.getRow(position)][this.getColumn(position)];
+	public void removePawn(int square) {
+		this.key ^= Zobrist.pawn(getPawn(square), square);
+		if (square < 64) {
+			long bit = ~(1L << square);
+			this.whiteLo &= bit;
+			this.blackLo &= bit;
+			this.kingLo &= bit;
+		} else {
+			long bit = ~(1L << (square - 64));
+			this.whiteHi &= bit;
+			this.blackHi &= bit;
+			this.kingHi &= bit;
+		}
+		this.columns[square % SIZE] &= ~(1 << (square / SIZE));
 	}
 
 	/**
@@ -249,67 +698,195 @@ public class Board implements Serializable {
 	 * @param column represents the column of the specific box
 	 */
 	public void removePawn(int row, int column) {
-		this.board[row][column] = Pawn.EMPTY;
+		removePawn(toSquare(row, column));
+	}
+
+	/**
+	 * Puts a pawn in the specified box, EMPTY and THRONE empty the box
+	 * @param square index of the box
+	 * @param pawn the pawn to put
+	 */
+	public void setPawn(int square, Pawn pawn){
+		removePawn(square);
+		if (square < 64) {
+			long bit = 1L << square;
+			if (pawn == Pawn.WHITE)
+				this.whiteLo |= bit;
+			else if (pawn == Pawn.BLACK)
+				this.blackLo |= bit;
+			else if (pawn == Pawn.KING)
+				this.kingLo |= bit;
+		} else {
+			long bit = 1L << (square - 64);
+			if (pawn == Pawn.WHITE)
+				this.whiteHi |= bit;
+			else if (pawn == Pawn.BLACK)
+				this.blackHi |= bit;
+			else if (pawn == Pawn.KING)
+				this.kingHi |= bit;
+		}
+		if (pawn == Pawn.WHITE || pawn == Pawn.BLACK || pawn == Pawn.KING)
+			this.columns[square % SIZE] |= 1 << (square / SIZE);
+		this.key ^= Zobrist.pawn(pawn, square);
+	}
+
+	/**
+	 * Moves the pawn in the box {@code from} to the empty box {@code to}
+	 * @param from index of the box of the pawn
+	 * @param to index of the arrival box
+	 */
+	public void movePawn(int from, int to){
+		setPawn(to, getPawn(from));
+		removePawn(from);
+	}
+
+	/**
+	 * @return The Zobrist key of the pawns on the board
+	 */
+	public long getKey(){
+		return this.key;
+	}
+
+	/**
+	 * @return The box of the king, -1 if the king is not on the board
+	 */
+	public int getKingPosition(){
+		return nearest(this.kingLo, this.kingHi, true);
+	}
+
+	/*
+	 * Bitboards of the white pawns, king included, and of the black pawns
+	 */
+	public long getWhiteLo(){
+		return this.whiteLo | this.kingLo;
+	}
+
+	public long getWhiteHi(){
+		return this.whiteHi | this.kingHi;
+	}
+
+	public long getBlackLo(){
+		return this.blackLo;
+	}
+
+	public long getBlackHi(){
+		return this.blackHi;
+	}
+
+	/**
+	 * @return The occupancy of the row, the bit {@code column} is set if the box is not empty
+	 */
+	public int getRowOccupancy(int row){
+		int shift = row * SIZE;
+		long lo = this.whiteLo | this.blackLo | this.kingLo;
+		long hi = this.whiteHi | this.blackHi | this.kingHi;
+		long bits;
+		if (shift == 0)
+			bits = lo;
+		else if (shift < 64)
+			bits = (lo >>> shift) | (hi << (64 - shift));
+		else
+			bits = hi >>> (shift - 64);
+		return (int) bits & ((1 << SIZE) - 1);
+	}
+
+	/**
+	 * @return The occupancy of the column, the bit {@code row} is set if the box is not empty
+	 */
+	public int getColumnOccupancy(int column){
+		return this.columns[column];
+	}
+
+	/**
+	 * @param square box of a pawn
+	 * @return The columns that the pawn can reach moving along its row, packed as {@code (first << 4) | last}
+	 * (see getFirst and getLast), the column of the pawn is in the span but it isn't a move
+	 */
+	public int getRowSpan(int square){
+		return ROW_SPANS[square][getRowOccupancy(square / SIZE)] & 0xFF;
+	}
+
+	/**
+	 * @param square box of a pawn
+	 * @return The rows that the pawn can reach moving along its column, packed as {@code (first << 4) | last}
+	 * (see getFirst and getLast), the row of the pawn is in the span but it isn't a move
+	 */
+	public int getColumnSpan(int square){
+		return COLUMN_SPANS[square][this.columns[square % SIZE]] & 0xFF;
+	}
+
+	/**
+	 * @return The first column or row of a span
+	 */
+	public static int getFirst(int span){
+		return span >>> 4;
+	}
+
+	/**
+	 * @return The last column or row of a span
+	 */
+	public static int getLast(int span){
+		return span & 0xF;
 	}
 
 	public void setPawn(int row, int column, Pawn pawn){
-		this.board[row][column] = pawn;
+		setPawn(toSquare(row, column), pawn);
 	}
 
 	public void setPawn(String position, Pawn pawn){
-		this.board[this.getRow(position)][this.getColumn(position)] = pawn;
+		setPawn(toSquare(position), pawn);
 	}
 	
 	/**
-	 * @param position string of the box to search in
+	 * @param square box to search in
 	 * @return The Pawn under the specified position
 	 * @author R.Vasumini, A.Solini
 	 */
-	public Pawn getPawnDown(String position){
-		return this.board[this.getRow(position)+1][this.getColumn(position)];
+	public Pawn getPawnDown(int square){
+		return getPawn(square + SIZE);
 	}
 
 	/**
-	 * @param position string of the box to search in
+	 * @param square box to search in
 	 * @return The Pawn over the specified position
 	 * @author R.Vasumini, A.Solini
 	 */
-	public Pawn getPawnUp(String position){
-		return this.board[this.getRow(position)-1][this.getColumn(position)];
+	public Pawn getPawnUp(int square){
+		return getPawn(square - SIZE);
 	}
 
 	/**
-	 * @param position string of the box to search in
+	 * @param square box to search in
 	 * @return The Pawn to the left of the specified position
 	 * @author R.Vasumini, A.Solini
 	 */
-	public Pawn getPawnLeft(String position){
-		return this.board[this.getRow(position)][this.getColumn(position)-1];
+	public Pawn getPawnLeft(int square){
+		return getPawn(square - 1);
 	}
 
 	/**
-	 * @param position string of the box to search in
+	 * @param square box to search in
 	 * @return The Pawn to the right of the specified position
 	 * @author R.Vasumini, A.Solini
 	 */
-	public Pawn getPawnRight(String position){
-		return this.board[this.getRow(position)][this.getColumn(position)+1];
+	public Pawn getPawnRight(int square){
+		return getPawn(square + 1);
 	}
 
-	public Pawn getPawnDiagonalLeftUp(String position){
-		return this.board[this.getRow(position)-1][this.getColumn(position)-1];
+	public Pawn getPawnDiagonalLeftUp(int square){
+		return getPawn(square - SIZE - 1);
 	}
 
-	public Pawn getPawnDiagonalLeftDown(String position){
-		return this.board[this.getRow(position)+1][this.getColumn(position)-1];
+	public Pawn getPawnDiagonalLeftDown(int square){
+		return getPawn(square + SIZE - 1);
 	}
 
-	public Pawn getPawnDiagonalRightUp(String position){
-		return this.board[this.getRow(position)-1][this.getColumn(position)+1];
+	public Pawn getPawnDiagonalRightUp(int square){
+		return getPawn(square - SIZE + 1);
 	}
 
-	public Pawn getPawnDiagonalRightDown(String position){
-		return this.board[this.getRow(position)+1][this.getColumn(position)+1];
+	public Pawn getPawnDiagonalRightDown(int square){
+		return getPawn(square + SIZE + 1);
 	}
 	
 
@@ -319,13 +896,8 @@ public class Board implements Serializable {
 	 * @author R.Vasumini, A.Solini
 	 */
 	public boolean isRowEmpty(int row){
-		boolean isEmpty = true;
-		for(int i = 0; i < 9; i++)
-			if(this.board[row][i] !=Pawn.EMPTY){
-				isEmpty = false;
-				break;
-			}
-		return isEmpty;
+		return ((this.whiteLo | this.blackLo | this.kingLo) & ROW_LO[row]) == 0
+			&& ((this.whiteHi | this.blackHi | this.kingHi) & ROW_HI[row]) == 0;
 	}
 
 	/**
@@ -334,13 +906,7 @@ public class Board implements Serializable {
 	 * @author R.Vasumini, A.Solini
 	 */
 	public boolean isRowWhite(int row){
-		boolean isWhite = true;
-		for(int i = 0; i < 9; i++)
-			if(this.board[row][i] == Pawn.BLACK){
-				isWhite = false;
-				break;
-			}
-		return isWhite;
+		return (this.blackLo & ROW_LO[row]) == 0 && (this.blackHi & ROW_HI[row]) == 0;
 	}
 
 	/**
@@ -349,13 +915,7 @@ public class Board implements Serializable {
 	 * @author R.Vasumini, A.Solini
 	 */
 	public boolean isRowBlack(int row){
-		boolean isBlack = true;
-		for(int i = 0; i < 9; i++)
-			if(this.board[row][i] == Pawn.WHITE || this.board[row][i] == Pawn.KING){
-				isBlack = false;
-				break;
-			}
-		return isBlack;
+		return ((this.whiteLo | this.kingLo) & ROW_LO[row]) == 0 && ((this.whiteHi | this.kingHi) & ROW_HI[row]) == 0;
 	}
 
 	/**
@@ -364,13 +924,8 @@ public class Board implements Serializable {
 	 * @author R.Vasumini, A.Solini
 	 */
 	public boolean isColumnEmpty(int column){
-		boolean isEmpty = true;
-		for(int i = 0; i < 9; i++)
-			if(this.board[i][column] !=Pawn.EMPTY){
-				isEmpty = false;
-				break;
-			}
-		return isEmpty;
+		return ((this.whiteLo | this.blackLo | this.kingLo) & COLUMN_LO[column]) == 0
+			&& ((this.whiteHi | this.blackHi | this.kingHi) & COLUMN_HI[column]) == 0;
 	}
 
 	/**
@@ -379,13 +934,7 @@ public class Board implements Serializable {
 	 * @author R.Vasumini, A.Solini
 	 */
 	public boolean isColumnWhite(int column){
-		boolean isWhite = true;
-		for(int i = 0; i < 9; i++)
-			if(this.board[i][column] == Pawn.BLACK){
-				isWhite = false;
-				break;
-			}
-		return isWhite;
+		return (this.blackLo & COLUMN_LO[column]) == 0 && (this.blackHi & COLUMN_HI[column]) == 0;
 	}
 
 	/**
@@ -394,221 +943,129 @@ public class Board implements Serializable {
 	 * @author R.Vasumini, A.Solini
 	 */
 	public boolean isColumnBlack(int column){
-		boolean isBlack = true;
-		for(int i = 0; i < 9; i++)
-			if(this.board[i][column] == Pawn.WHITE || this.board[i][column] == Pawn.KING){
-				isBlack = false;
-				break;
-			}
-		return isBlack;
+		return ((this.whiteLo | this.kingLo) & COLUMN_LO[column]) == 0 && ((this.whiteHi | this.kingHi) & COLUMN_HI[column]) == 0;
 	}
 
-	public boolean isWhiteDown(String position){
-		boolean isWhite = true;
-		int column = this.getColumn(position);
-		for(int i = this.getRow(position) + 1; i < 9; i++)
-			if(this.board[i][column] == Pawn.BLACK){
-				isWhite = false;
-				break;
-			}
-		return isWhite;
+	/**
+	 * @return {@code true} if there are no black pawns from the specified box to the edge in the specified direction
+	 */
+	private boolean isWhite(int square, int direction){
+		return (this.blackLo & RAY_LO[direction][square]) == 0 && (this.blackHi & RAY_HI[direction][square]) == 0;
 	}
 
-	public boolean isWhiteUp(String position){
-		boolean isWhite = true;
-		int column = this.getColumn(position);
-		for(int i = this.getRow(position) -1;  i > -1; i--)
-			if(this.board[i][column] == Pawn.BLACK){
-				isWhite = false;
-				break;
-			}
-		return isWhite;
+	/**
+	 * @return {@code true} if there are no pawns from the specified box to the edge in the specified direction
+	 */
+	private boolean isEmpty(int square, int direction){
+		return ((this.whiteLo | this.blackLo | this.kingLo) & RAY_LO[direction][square]) == 0
+			&& ((this.whiteHi | this.blackHi | this.kingHi) & RAY_HI[direction][square]) == 0;
 	}
 
-	public boolean isWhiteRight(String position){
-		boolean isWhite = true;
-		int row = this.getRow(position);
-		for(int i = this.getColumn(position) + 1; i < 9; i++)
-			if(this.board[row][i] == Pawn.BLACK){
-				isWhite = false;
-				break;
-			}
-		return isWhite;
+	public boolean isWhiteDown(int square){
+		return isWhite(square, DOWN);
 	}
 
-	public boolean isWhiteLeft(String position){
-		boolean isWhite = true;
-		int row = this.getRow(position);
-		for(int i = this.getColumn(position) - 1; i > -1; i--)
-			if(this.board[row][i] == Pawn.BLACK){
-				isWhite = false;
-				break;
-			}
-		return isWhite;
+	public boolean isWhiteUp(int square){
+		return isWhite(square, UP);
 	}
 
-	public boolean isEmptyDown(String position){
-		boolean isEmpty = true;
-		int column = this.getColumn(position);
-		for(int i = this.getRow(position) + 1; i < 9; i++)
-			if(this.board[i][column] != Pawn.EMPTY){
-				isEmpty= false;
-				break;
-			}
-		return isEmpty;
+	public boolean isWhiteRight(int square){
+		return isWhite(square, RIGHT);
 	}
 
-	public boolean isEmptyUp(String position){
-		boolean isEmpty = true;
-		int column = this.getColumn(position);
-		for(int i = this.getRow(position) -1;  i > -1; i--)
-			if(this.board[i][column] != Pawn.EMPTY){
-				isEmpty = false;
-				break;
-			}
-		return isEmpty;
+	public boolean isWhiteLeft(int square){
+		return isWhite(square, LEFT);
 	}
 
-	public boolean isEmptyRight(String position){
-		boolean isEmpty = true;
-		int row = this.getRow(position);
-		for(int i = this.getColumn(position) + 1; i < 9; i++)
-			if(this.board[row][i] != Pawn.EMPTY){
-				isEmpty = false;
-				break;
-			}
-		return isEmpty;
+	public boolean isEmptyDown(int square){
+		return isEmpty(square, DOWN);
 	}
 
-	public boolean isEmptyLeft(String position){
-		boolean isEmpty = true;
-		int row = this.getRow(position);
-		for(int i = this.getColumn(position) - 1; i > -1; i--)
-			if(this.board[row][i] != Pawn.EMPTY){
-				isEmpty = false;
-				break;
-			}
-		return isEmpty;
+	public boolean isEmptyUp(int square){
+		return isEmpty(square, UP);
 	}
 
-	public boolean kingProtectedUp(int rowKing, int columnKing){
-		boolean checkBlack = false;
+	public boolean isEmptyRight(int square){
+		return isEmpty(square, RIGHT);
+	}
 
-		for(int i=columnKing + 1 ; i < 9; i++){
-			if(board[rowKing -1][i] == Pawn.BLACK){
-				checkBlack = true;
-				break;
-			}
-			if(board[rowKing -1][i] == Pawn.WHITE){
-				checkBlack = false;
-				break;
-			}
-		}
-		if(checkBlack == false){
-			for(int i=columnKing - 1;i > - 1; i--){
-				if(board[rowKing -1][i] == Pawn.BLACK){
-					checkBlack = true;
-					break;
-				}
-				if(board[rowKing -1][i] == Pawn.WHITE){
-					checkBlack = false;
-					break;
-				}
-			}
-		}
+	public boolean isEmptyLeft(int square){
+		return isEmpty(square, LEFT);
+	}
 
-		return !checkBlack;
+	/**
+	 * @param square box of the board, it isn't considered
+	 * @param direction UP, DOWN, LEFT or RIGHT
+	 * @return The first box which is not empty going from the specified box in the direction, -1 if there is none
+	 */
+	public int getNearestPawn(int square, int direction){
+		long lo = (this.whiteLo | this.blackLo | this.kingLo) & RAY_LO[direction][square];
+		long hi = (this.whiteHi | this.blackHi | this.kingHi) & RAY_HI[direction][square];
+		return nearest(lo, hi, direction == DOWN || direction == RIGHT);
 	}
 
-	public boolean kingProtectedDown(int rowKing, int columnKing){
-		boolean checkBlack = false;
+	/**
+	 * @return {@code true} if the first white or black pawn met from the specified box in the specified direction is black
+	 */
+	private boolean isFirstBlack(int square, int direction){
+		long lo = (this.whiteLo | this.blackLo) & RAY_LO[direction][square];
+		long hi = (this.whiteHi | this.blackHi) & RAY_HI[direction][square];
+		int first = nearest(lo, hi, direction == DOWN || direction == RIGHT);
+		return first != -1 && isBlack(first);
+	}
 
-		for(int i=columnKing + 1 ; i < 9; i++){
-			if(board[rowKing +1][i] == Pawn.BLACK){
-				checkBlack = true;
-				break;
-			}
-			if(board[rowKing +1][i] == Pawn.WHITE){
-				checkBlack = false;
-				break;
-			}
-		}
-		if(checkBlack == false){
-			for(int i=columnKing - 1;i > - 1; i--){
-				if(board[rowKing +1][i] == Pawn.BLACK){
-					checkBlack = true;
-					break;
-				}
-				if(board[rowKing +1][i] == Pawn.WHITE){
-					checkBlack = false;
-					break;
-				}
-			}
-		}
+	/**
+	 * Checks the row over the king: the king is protected if the first pawn met on both sides is not black
+	 */
+	public boolean kingProtectedUp(int rowKing, int columnKing){
+		int square = toSquare(rowKing - 1, columnKing);
+		return !isFirstBlack(square, RIGHT) && !isFirstBlack(square, LEFT);
+	}
 
-		return !checkBlack;
+	/**
+	 * Checks the row under the king: the king is protected if the first pawn met on both sides is not black
+	 */
+	public boolean kingProtectedDown(int rowKing, int columnKing){
+		int square = toSquare(rowKing + 1, columnKing);
+		return !isFirstBlack(square, RIGHT) && !isFirstBlack(square, LEFT);
 	}
 
+	/**
+	 * Checks the column to the left of the king: the king is protected if the first pawn met on both sides is not black
+	 */
 	public boolean kingProtectedLeft(int rowKing, int columnKing){
-		boolean checkBlack = false;
-
-		for(int i=rowKing + 1 ; i < 9; i++){
-			if(board[i][columnKing - 1] == Pawn.BLACK){
-				checkBlack = true;
-				break;
-			}
-			if(board[i][columnKing - 1] == Pawn.WHITE){
-				checkBlack = false;
-				break;
-			}
-		}
-		if(checkBlack == false){
-			for(int i=rowKing - 1;i > - 1; i--){
-				if(board[i][columnKing - 1] == Pawn.BLACK){
-					checkBlack = true;
-					break;
-				}
-				if(board[i][columnKing - 1] == Pawn.WHITE){
-					checkBlack = false;
-					break;
-				}
-			}
-		}
-
-		return !checkBlack;
+		int square = toSquare(rowKing, columnKing - 1);
+		return !isFirstBlack(square, DOWN) && !isFirstBlack(square, UP);
 	}
 
+	/**
+	 * Checks the column to the right of the king: the king is protected if the first pawn met on both sides is not black
+	 */
 	public boolean kingProtectedRight(int rowKing, int columnKing){
-		boolean checkBlack = false;
+		int square = toSquare(rowKing, columnKing + 1);
+		return !isFirstBlack(square, DOWN) && !isFirstBlack(square, UP);
+	}
 
-		for(int i=rowKing + 1 ; i < 9; i++){
-			if(board[i][columnKing + 1] == Pawn.BLACK){
-				checkBlack = true;
-				break;
-			}
-			if(board[i][columnKing + 1] == Pawn.WHITE){
-				checkBlack = false;
-				break;
-			}
-		}
-		if(checkBlack == false){
-			for(int i=rowKing - 1;i > - 1; i--){
-				if(board[i][columnKing + 1] == Pawn.BLACK){
-					checkBlack = true;
-					break;
-				}
-				if(board[i][columnKing + 1] == Pawn.WHITE){
-					checkBlack = false;
-					break;
-				}
-			}
-		}
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null || this.getClass() != obj.getClass())
+			return false;
+		Board other = (Board) obj;
+		return this.key == other.key
+			&& this.whiteLo == other.whiteLo && this.whiteHi == other.whiteHi
+			&& this.blackLo == other.blackLo && this.blackHi == other.blackHi
+			&& this.kingLo == other.kingLo && this.kingHi == other.kingHi;
+	}
 
-		return !checkBlack;
+	@Override
+	public int hashCode() {
+		return (int) (this.key ^ (this.key >>> 32));
 	}
 
 	public  int getLength(){
-		return this.board.length;
+		return SIZE;
 	}
 
 	/**
@@ -617,10 +1074,9 @@ public class Board implements Serializable {
 	 * @return The string representing the box  found
 	 */
 	public String getBox(int row, int column) {
-		String ret;
-		char col = (char) (column + 97);
-		ret = col + "" + (row + 1);
-		return ret;
+		if (row < 0 || row >= SIZE || column < 0 || column >= SIZE)
+			return (char) (column + 97) + "" + (row + 1);
+		return BOXES[toSquare(row, column)];
 	}
 
 	/**
@@ -628,7 +1084,7 @@ public class Board implements Serializable {
 	 * @return the integer of the column that corresponds to the specified box
 	 */
 	public int getColumn(String box){
-		return Character.toLowerCase(box.charAt(0)) - 97;
+		return Character.toLowerCase(box.charAt(0)) - 'a';
 	}
 
 	/**
@@ -636,7 +1092,7 @@ public class Board implements Serializable {
 	 * @return the integer of the raw that corresponds to the specified box
 	 */
 	public int getRow(String box){
-		return Integer.parseInt(box.charAt(1) + "") - 1;
+		return box.charAt(1) - '1';
 	}
 	
 }
\ No newline at end of file
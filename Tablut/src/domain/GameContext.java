@@ -0,0 +1,112 @@
+package domain;
+
+import java.util.Arrays;
+
+import domain.State.Turn;
+
+/**
+ * Mutable part of a game played with TablutGame: the counters of the moves without capturing and the
+ * buffers reused at every ply. TablutGame holds no state and can be shared by all the threads, while each
+ * search thread owns its context and passes it to makeMove and unmakeMove.
+ */
+public class GameContext {
+
+	private int movesWithoutCapturingWhite, movesWithoutCapturingBlack;
+	/**
+	 * Undo records, one for each ply of the search
+	 */
+	private Undo[] undos = new Undo[16];
+	/**
+	 * Move buffers, one for each ply of the search
+	 */
+	private int[][] moveBuffers = new int[16][];
+	/**
+	 * Bitboard of the target boxes of the tactical move generators, low and high word
+	 */
+	private final long[] targetBuffer = new long[2];
+
+	/**
+	 * Updates the moves without capturing of the player who has just moved
+	 * @param turn the player who has moved
+	 * @param captured {@code true} if the move captured at least one pawn
+	 * @return The previous value of the counter
+	 */
+	int update(Turn turn, boolean captured) {
+		int old;
+		if (turn == Turn.WHITE) {
+			old = this.movesWithoutCapturingWhite;
+			this.movesWithoutCapturingWhite = captured ? 0 : old + 1;
+		} else {
+			old = this.movesWithoutCapturingBlack;
+			this.movesWithoutCapturingBlack = captured ? 0 : old + 1;
+		}
+		return old;
+	}
+
+	/**
+	 * Restores the moves without capturing of the specified player
+	 */
+	void restore(Turn turn, int movesWithoutCapturing) {
+		if (turn == Turn.WHITE)
+			this.movesWithoutCapturingWhite = movesWithoutCapturing;
+		else
+			this.movesWithoutCapturingBlack = movesWithoutCapturing;
+	}
+
+	/**
+	 * @return The undo record of the specified ply
+	 */
+	public Undo getUndo(int ply) {
+		if (ply >= this.undos.length)
+			this.undos = Arrays.copyOf(this.undos, 2 * ply);
+		if (this.undos[ply] == null)
+			this.undos[ply] = new Undo();
+		return this.undos[ply];
+	}
+
+	/**
+	 * @return The move buffer of the specified ply, it can hold Move.MAX_MOVES moves
+	 */
+	public int[] getMoveBuffer(int ply) {
+		if (ply >= this.moveBuffers.length)
+			this.moveBuffers = Arrays.copyOf(this.moveBuffers, 2 * ply);
+		if (this.moveBuffers[ply] == null)
+			this.moveBuffers[ply] = new int[Move.MAX_MOVES];
+		return this.moveBuffers[ply];
+	}
+
+	/**
+	 * @return The buffer of the target boxes used by TablutGame.getTacticalMoves and getEscapeReplies
+	 */
+	public long[] getTargetBuffer() {
+		return this.targetBuffer;
+	}
+
+	/**
+	 * @return the movesWithoutCapturingWhite
+	 */
+	public int getMovesWithoutCapturingWhite() {
+		return this.movesWithoutCapturingWhite;
+	}
+
+	/**
+	 * @param movesWithoutCapturingWhite the movesWithoutCapturingWhite to set
+	 */
+	public void setMovesWithoutCapturingWhite(int movesWithoutCapturingWhite) {
+		this.movesWithoutCapturingWhite = movesWithoutCapturingWhite;
+	}
+
+	/**
+	 * @return the movesWithoutCapturingBlack
+	 */
+	public int getMovesWithoutCapturingBlack() {
+		return this.movesWithoutCapturingBlack;
+	}
+
+	/**
+	 * @param movesWithoutCapturingBlack the movesWithoutCapturingBlack to set
+	 */
+	public void setMovesWithoutCapturingBlack(int movesWithoutCapturingBlack) {
+		this.movesWithoutCapturingBlack = movesWithoutCapturingBlack;
+	}
+}
@@ -0,0 +1,78 @@
+package domain;
+
+import java.io.IOException;
+
+import domain.State.Turn;
+
+/**
+ * Moves used by the search: a move is packed in the 16 lowest bits of an int as {@code (from << 7) | to},
+ * where from and to are the indexes of the boxes (see Board.toSquare). Moves are written in preallocated
+ * buffers, an Action is created only when a move has to be sent to the server.
+ */
+public final class Move {
+
+	/**
+	 * Value which doesn't represent any move
+	 */
+	public static final int NONE = 0;
+
+	/**
+	 * Maximum number of moves in a state: at most 16 pawns with at most 16 arrival boxes each,
+	 * it is the size required for the move buffers
+	 */
+	public static final int MAX_MOVES = 256;
+
+	private Move() {
+	}
+
+	/**
+	 * @param from departure box
+	 * @param to arrival box
+	 * @return The packed move
+	 */
+	public static int of(int from, int to) {
+		return (from << 7) | to;
+	}
+
+	/**
+	 * @return The departure box of the move
+	 */
+	public static int getFrom(int move) {
+		return (move >>> 7) & 0x7F;
+	}
+
+	/**
+	 * @return The arrival box of the move
+	 */
+	public static int getTo(int move) {
+		return move & 0x7F;
+	}
+
+	/**
+	 * @return The packed move corresponding to the action
+	 */
+	public static int fromAction(Action action) {
+		return of(Board.toSquare(action.getFrom()), Board.toSquare(action.getTo()));
+	}
+
+	/**
+	 * @param move a packed move
+	 * @param turn the player who makes the move
+	 * @return A new Action corresponding to the move
+	 */
+	public static Action toAction(int move, Turn turn) {
+		try {
+			return new Action(Board.toBox(getFrom(move)), Board.toBox(getTo(move)), turn);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	/**
+	 * @return A string like "e4-h4" representing the move
+	 */
+	public static String toString(int move) {
+		return Board.toBox(getFrom(move)) + "-" + Board.toBox(getTo(move));
+	}
+}
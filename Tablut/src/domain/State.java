@@ -1,12 +1,9 @@
 package domain;
 
-import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.HashMap;
 
 import domain.Board.Pawn;
-import domain.Board.Position;
 
 /**
  * Class for the State of the game, we have a representation of the board and the turn
@@ -37,18 +34,49 @@ public class State implements Serializable, Cloneable {
 
 	protected Board board;
 	protected Turn turn;
-	protected Action lastAction;
+	/**
+	 * The move that brought to this state, Move.NONE at the beginning of the game
+	 */
+	protected int lastMove;
 	protected int oldNumWhite, oldNumBlack;
-	protected String currentKingPosition;
+	protected int currentKingPosition;
 	protected int turnNumber;
-	protected HashMap<String, ArrayList<String>> possibleWhiteActions = new HashMap<String, ArrayList<String>>();
-	protected HashMap<String, ArrayList<String>> possibleBlackActions = new HashMap<String, ArrayList<String>>();
+	/**
+	 * Possible actions of the pawns indexed by box: the spans of the row and of the column of the pawn
+	 * (see Board.getRowSpan and Board.getColumnSpan) packed as {@code (rowSpan << 8) | columnSpan}.
+	 * The values of the empty boxes have no meaning
+	 */
+	protected int[] possibleActions = new int[Board.SQUARES];
 
 	public State() {
 		this.board = new Board();
 		this.turn = Turn.WHITE;
 		init();
 	}
+
+	/**
+	 * Copy of another state, the possible actions are copied instead of being computed again
+	 * @param other the state to copy
+	 */
+	private State(State other) {
+		this.board = new Board();
+		copyFrom(other);
+	}
+
+	/**
+	 * Copies another state into this one without allocating, the board of this state is overwritten
+	 * @param other the state to copy
+	 */
+	public void copyFrom(State other) {
+		this.board.copyFrom(other.board);
+		this.turn = other.turn;
+		this.lastMove = other.lastMove;
+		this.oldNumWhite = other.oldNumWhite;
+		this.oldNumBlack = other.oldNumBlack;
+		this.currentKingPosition = other.currentKingPosition;
+		this.turnNumber = other.turnNumber;
+		System.arraycopy(other.possibleActions, 0, this.possibleActions, 0, Board.SQUARES);
+	}
 	
 	/**
 	 * Initializes the possible white and black actions at the beginning of the game and other utility values
@@ -57,211 +85,170 @@ public class State implements Serializable, Cloneable {
 	private void init() {
 		this.oldNumBlack = 16;
 		this.oldNumWhite = 9;
-		this.currentKingPosition = "e5";
+		this.currentKingPosition = Board.THRONE_SQUARE;
 		this.turnNumber = 1;
-		HashMap<String, Position> positions = this.board.getPositions();
-		for (String box : positions.keySet()) {
-			if (positions.get(box).equals(Position.CITADEL)) {
-				this.possibleBlackActions.put(box, getPossibleTo(box));
-			}
-
-			else if (positions.get(box).equals(Position.STARTWHITE)) {
-				this.possibleWhiteActions.put(box, getPossibleTo(box));
+		updatePossibleActions(Turn.WHITE);
+		updatePossibleActions(Turn.BLACK);
+		this.lastMove = Move.NONE;
+	}
 
-			} else if (positions.get(box).equals(Position.THRONE)) {
-				this.possibleWhiteActions.put(box, getPossibleTo(box));
-			}
-		}
-		//Set an initial action for the lastAction value which will be replaces every turn
-		try {
-			this.lastAction = new Action("z0", "z0", Turn.BLACK);
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+	/**
+	 * Updates the king position after a move of the opponent, reading it from the board
+	 * @author R.Vasumini, A.Solini
+	 */
+	public void updateCurrentKingPosition(){
+		int king = this.board.getKingPosition();
+		if (king != -1)
+			this.currentKingPosition = king;
 	}
+
 	/**
-	 * Updates opponent possible actions map after his move, if the opponent is white player and moves the king the king position is updated too.
+	 * Calculates the possible moves for a pawn from a specified position of the board, 
+	 * the reachable boxes are looked up in the sliding move tables of the board
+	 * @param from The box of the pawn
+	 * @return The possible actions of the pawn packed as in possibleActions
 	 * @author R.Vasumini, A.Solini
 	 */
-	public void updateOpponentPossibleActionsKeySet(Turn opponent){
-		String toRemove = null, toAdd = null;
-		if(opponent == Turn.WHITE){
-			for(String from : this.possibleWhiteActions.keySet()){
-				if(this.board.getPawn(from) == Pawn.EMPTY || this.board.getPawn(from) == Pawn.THRONE){
-					toRemove = from;
-					for(String to : this.possibleWhiteActions.get(from)){
-						if(this.board.getPawn(to) == Pawn.WHITE || this.board.getPawn(to) == Pawn.KING){
-							toAdd = to;
-							if(this.board.getPawn(to) == Pawn.KING)
-								this.currentKingPosition = to;
-						}
-					}
-				}
-			}
-			this.possibleWhiteActions.remove(toRemove);
-			this.possibleWhiteActions.put(toAdd, null);
+	private int getPossibleTo(int from) {
+		return (this.board.getRowSpan(from) << 8) | this.board.getColumnSpan(from);
+	}
+
+	/**
+	 * Method which updates the possible actions of every pawn of the choosen player 
+	 * @param turn Current player
+	 * @Author R.Vasumini, A.Solini
+	 */
+	public void updatePossibleActions(Turn turn){
+		long lo = (turn == Turn.BLACK) ? this.board.getBlackLo() : this.board.getWhiteLo();
+		long hi = (turn == Turn.BLACK) ? this.board.getBlackHi() : this.board.getWhiteHi();
+		for (; lo != 0; lo &= lo - 1) {
+			int from = Long.numberOfTrailingZeros(lo);
+			this.possibleActions[from] = getPossibleTo(from);
 		}
-		else if(opponent == Turn.BLACK){
-			for(String from : this.possibleBlackActions.keySet()){
-				if(this.board.getPawn(from) == Pawn.EMPTY){
-					toRemove = from;
-					for(String to : this.possibleBlackActions.get(from)){
-						if(this.board.getPawn(to) == Pawn.BLACK){
-							toAdd = to;
-						}
-					}
-				}
-			}
-			this.possibleBlackActions.remove(toRemove);
-			this.possibleBlackActions.put(toAdd, null);
+		for (; hi != 0; hi &= hi - 1) {
+			int from = 64 + Long.numberOfTrailingZeros(hi);
+			this.possibleActions[from] = getPossibleTo(from);
 		}
 	}
 
 	/**
-	 * Calculates the possible moves for a pawn from a specified position of the board
-	 * @param from The string which represents the current position of the pawn
-	 * @return An ArrayList of strings which represents  the possible future positions of the pawn
-	 * @author R.Vasumini, A.Solini
+	 * Recomputes the possible actions of the pawns which see the specified box along its row and its column,
+	 * they are the only ones whose actions change when the box is emptied or occupied
+	 * @param square A box whose content has changed
+	 * @param undo The record where the replaced actions are saved
 	 */
-	private ArrayList<String> getPossibleTo(String from) {
-		int row = this.board.getRow(from);
-		int column = this.board.getColumn(from);
-		ArrayList<String> result = new ArrayList<String>();
-		HashMap<String, Position> positions = this.board.getPositions();
-		// to the right...
-		for (int i = column + 1; i < 9; i++) {
-			if (this.board.getPawn(row, i) == Pawn.EMPTY 
-				&& (positions.get(this.board.getBox(row, i)) != Position.CITADEL || positions.get(from) == Position.CITADEL)
-				&& (positions.get(this.board.getBox(row, i)) != Position.THRONE || positions.get(from) == Position.THRONE)) {
-				result.add(this.board.getBox(row, i));
-			}
-			else{
-				break;
-			}
+	void updatePossibleActionsAround(int square, Undo undo) {
+		for (int direction = Board.UP; direction <= Board.RIGHT; direction++) {
+			int pawn = this.board.getNearestPawn(square, direction);
+			if (pawn != -1)
+				updatePossibleActionsOf(pawn, undo);
 		}
+	}
 
-		// to the left...		(... we will fight to the death, to the edge of the earth. It's a brave new world from the last to the first)
-		for (int i = column - 1; i > -1; i--) {
-			if (this.board.getPawn(row, i) == Pawn.EMPTY 
-				&& (positions.get(this.board.getBox(row, i)) != Position.CITADEL || positions.get(from) == Position.CITADEL)
-				&& (positions.get(this.board.getBox(row, i)) != Position.THRONE || positions.get(from) == Position.THRONE)) {
-				result.add(this.board.getBox(row, i));
-			}
-			else{
-				break;
-			}
-		}
+	/**
+	 * Recomputes the possible actions of a pawn, unless it has already been done for the same move
+	 * @param square The box of the pawn
+	 * @param undo The record where the replaced actions are saved
+	 */
+	void updatePossibleActionsOf(int square, Undo undo) {
+		if (undo.isUpdated(square))
+			return;
+		undo.addUpdated(square, this.possibleActions[square]);
+		this.possibleActions[square] = getPossibleTo(square);
+	}
 
-		// upward
-		for (int i = row - 1; i > -1; i--) {
-			if (this.board.getPawn(i, column) == Pawn.EMPTY  
-				&& (positions.get(this.board.getBox(i, column)) != Position.CITADEL || positions.get(from) == Position.CITADEL)
-				&& (positions.get(this.board.getBox(i, column)) != Position.THRONE || positions.get(from) == Position.THRONE)) {
-				result.add(this.board.getBox(i, column));
-			}
-			else{
-				break;
-			}
-		}
+	/**
+	 * Puts back the possible actions replaced by updatePossibleActionsOf, in reverse order
+	 * @param undo The record filled by the move
+	 */
+	void restorePossibleActions(Undo undo) {
+		for (int i = undo.numUpdated - 1; i >= 0; i--)
+			this.possibleActions[undo.updated[i]] = undo.updatedActions[i];
+	}
 
+	/**
+	 * Writes the possible moves of a pawn in the specified buffer: to the right, to the left, upward and downward
+	 * @param from The box of the pawn
+	 * @param moves buffer of the moves
+	 * @param offset index of the buffer where the first move is written
+	 * @return The index after the last move written
+	 */
+	public int getPossibleMoves(int from, int[] moves, int offset) {
+		int actions = this.possibleActions[from];
+		int rowSpan = actions >>> 8, columnSpan = actions & 0xFF;
+		int row = from / Board.SIZE, column = from % Board.SIZE;
+		// to the right...
+		for (int i = column + 1; i <= Board.getLast(rowSpan); i++)
+			moves[offset++] = Move.of(from, from + i - column);
+		// to the left...		(... we will fight to the death, to the edge of the earth. It's a brave new world from the last to the first)
+		for (int i = column - 1; i >= Board.getFirst(rowSpan); i--)
+			moves[offset++] = Move.of(from, from + i - column);
+		// upward
+		for (int i = row - 1; i >= Board.getFirst(columnSpan); i--)
+			moves[offset++] = Move.of(from, from + (i - row) * Board.SIZE);
 		// downward
-		for (int i = row + 1; i < 9; i++) {
-			if (this.board.getPawn(i, column) == Pawn.EMPTY  
-				&& (positions.get(this.board.getBox(i, column)) != Position.CITADEL || positions.get(from) == Position.CITADEL)
-				&& (positions.get(this.board.getBox(i, column)) != Position.THRONE || positions.get(from) == Position.THRONE)) {
-				result.add(this.board.getBox(i, column));
-			}
-			else{
-				break;
-			}
-		}
-		return result;
+		for (int i = row + 1; i <= Board.getLast(columnSpan); i++)
+			moves[offset++] = Move.of(from, from + (i - row) * Board.SIZE);
+		return offset;
 	}
 
 	/**
-	 * Method which updates the possible actions' map of the choosen player changing the position of a moved pawn, 
-	 * notice that  it doesn't change the possible actions but only the key "from" associated to the pawn
-	 * @param oldFrom Pawn's old position
-	 * @param newFrom Pawn's new position
-	 * @param turn Current player
-	 * @author R.Vasumini, A.Solini
+	 * @param from The box of a pawn
+	 * @param to A box of the board
+	 * @return {@code true} if the pawn can move to the box
 	 */
-	public void updatePossibleActionsKeySet(String oldFrom, String newFrom, Turn turn) {
-		if (turn == Turn.BLACK) {
-			this.possibleBlackActions.remove(oldFrom);
-			this.possibleBlackActions.put(newFrom, null);
-			
+	public boolean isPossibleAction(int from, int to) {
+		int actions = this.possibleActions[from];
+		if (from == to)
+			return false;
+		if (from / Board.SIZE == to / Board.SIZE) {
+			int column = to % Board.SIZE, rowSpan = actions >>> 8;
+			return column >= Board.getFirst(rowSpan) && column <= Board.getLast(rowSpan);
 		}
-		if (turn == Turn.WHITE) {
-			this.possibleWhiteActions.remove(oldFrom);
-			this.possibleWhiteActions.put(newFrom, null);
+		if (from % Board.SIZE == to % Board.SIZE) {
+			int row = to / Board.SIZE, columnSpan = actions & 0xFF;
+			return row >= Board.getFirst(columnSpan) && row <= Board.getLast(columnSpan);
 		}
+		return false;
 	}
 
 	/**
-	 * Method which updates the possible actions' map of the choosen player 
-	 * @param turn Current player
-	 * @Author R.Vasumini, A.Solini
+	 * Writes the possible moves of the player who has to move in the specified buffer
+	 * @param moves buffer of at least Move.MAX_MOVES elements
+	 * @return The number of moves written in the buffer
 	 */
-	public void updatePossibleActions(Turn turn){
-		if (turn == Turn.BLACK) {
-			for(String from : this.possibleBlackActions.keySet())
-				this.possibleBlackActions.replace(from, getPossibleTo(from));
-			
-		}
-		if (turn == Turn.WHITE) {
-			for(String from : this.possibleWhiteActions.keySet())
-				this.possibleWhiteActions.replace(from, getPossibleTo(from));
-		}
+	public int getMoves(int[] moves) {
+		return getMoves(this.turn, moves);
 	}
 
 	/**
-	 * Method which updates the possible actions' map of the choosen player  checking if  some of his pawns have been eaten
-	 * @param board Current board
+	 * Writes the possible moves of the specified player in the buffer, from the lowest box to the highest
 	 * @param turn Current player
-	 * @author R.Vasumini, A.Solini
+	 * @param moves buffer of at least Move.MAX_MOVES elements
+	 * @return The number of moves written in the buffer
 	 */
-	public void eatenUpdate(Board board, Turn turn){
-		ArrayList<String> toRemove = new ArrayList<String>();
-		if (turn == Turn.BLACK){
-			for(String from : this.possibleBlackActions.keySet())
-				if(board.getPawn(board.getRow(from),board.getColumn(from)) != Pawn.BLACK)
-					toRemove.add(from);
-
-			for(String removing : toRemove)
-				this.possibleBlackActions.remove(removing);
-			
-		}
-		else if (turn == Turn.WHITE){
-			for(String from : this.possibleWhiteActions.keySet()){
-				Pawn temp = board.getPawn(board.getRow(from),board.getColumn(from));
-				if(temp != Pawn.WHITE && temp != Pawn.KING)
-					toRemove.add(from);
-			}
-
-			for(String removing : toRemove)
-				this.possibleWhiteActions.remove(removing);
-		}
+	public int getMoves(Turn turn, int[] moves) {
+		long lo = (turn == Turn.BLACK) ? this.board.getBlackLo() : this.board.getWhiteLo();
+		long hi = (turn == Turn.BLACK) ? this.board.getBlackHi() : this.board.getWhiteHi();
+		int numMoves = 0;
+		for (; lo != 0; lo &= lo - 1)
+			numMoves = getPossibleMoves(Long.numberOfTrailingZeros(lo), moves, numMoves);
+		for (; hi != 0; hi &= hi - 1)
+			numMoves = getPossibleMoves(64 + Long.numberOfTrailingZeros(hi), moves, numMoves);
+		return numMoves;
 	}
 
 	/**
 	 * @param turn Current player
 	 * @return An {@code ArrayList<Action>} of the current player's possible moves
-	 * @throws IOException
 	 * @author R.Vasumini, A.Solini
 	 */
-	public ArrayList<Action> getActionList(Turn turn) throws IOException {
-		ArrayList<Action> result = new ArrayList<Action>();
-		if(turn == Turn.BLACK)
-			for(String from : this.possibleBlackActions.keySet())
-				for(String to : this.possibleBlackActions.get(from))
-					result.add(new Action(from, to, Turn.BLACK));
-
-		if(turn == Turn.WHITE)
-			for(String from : this.possibleWhiteActions.keySet())
-				for(String to : this.possibleWhiteActions.get(from))
-					result.add(new Action(from, to, Turn.WHITE));
-		
+	public ArrayList<Action> getActionList(Turn turn) {
+		int[] moves = new int[Move.MAX_MOVES];
+		int numMoves = getMoves(turn, moves);
+		ArrayList<Action> result = new ArrayList<Action>(numMoves);
+		for (int i = 0; i < numMoves; i++)
+			result.add(Move.toAction(moves[i], turn));
 		return result;
 	}
 
@@ -282,11 +269,13 @@ public class State implements Serializable, Cloneable {
 	}
 
 	/**
-	 * @return The action that brought to this state
+	 * @return A new Action for the move that brought to this state, null at the beginning of the game
 	 * @author R.Vasumini, A.Solini
 	 */
 	public Action getLastAction(){
-		return this.lastAction;
+		if (this.lastMove == Move.NONE)
+			return null;
+		return Move.toAction(this.lastMove, this.board.isBlack(Move.getTo(this.lastMove)) ? Turn.BLACK : Turn.WHITE);
 	}
 
 	/**
@@ -294,23 +283,21 @@ public class State implements Serializable, Cloneable {
 	 * @author R.Vasumini, A.Solini
 	 */
 	public void setLastAction(Action action){
-		this.lastAction = action;
+		this.lastMove = (action == null) ? Move.NONE : Move.fromAction(action);
 	}
 
 	/**
-	 * @return A map of the possible actions that white pawns can do at the current state
-	 * @author R.Vasumini, A.Solini
+	 * @return The move that brought to this state, Move.NONE at the beginning of the game
 	 */
-	public HashMap<String, ArrayList<String>> getPossibleWhiteActions(){
-		return this.possibleWhiteActions;
+	public int getLastMove(){
+		return this.lastMove;
 	}
 
 	/**
-	 * @return A map of the possible actions that black pawns can do at the current state
-	 * @author R.Vasumini, A.Solini
+	 * @param move the move that brought to this state
 	 */
-	public HashMap<String, ArrayList<String>> getPossibleBlackActions(){
-		return this.possibleBlackActions;
+	public void setLastMove(int move){
+		this.lastMove = move;
 	}
 
 	/**
@@ -346,7 +333,7 @@ public class State implements Serializable, Cloneable {
 	 * @author R.Vasumini, A.Solini
 	 */
 	public int getNumWhite(){
-		return getPossibleWhiteActions().keySet().size();
+		return this.board.getNumWhite();
 	}
 
 	/**
@@ -354,14 +341,14 @@ public class State implements Serializable, Cloneable {
 	 * @author R.Vasumini, A.Solini
 	 */
 	public int getNumBlack(){
-		return getPossibleBlackActions().keySet().size();
+		return this.board.getNumBlack();
 	}
 
 	/**
 	 * @param newPosition the new position of the king in the board
 	 * @author R.Vasumini, A.Solini
 	 */
-	public void setCurrentKingPosition(String newPosition){
+	public void setCurrentKingPosition(int newPosition){
 		this.currentKingPosition = newPosition;
 	}
 
@@ -369,7 +356,7 @@ public class State implements Serializable, Cloneable {
 	 * @return The king current position on the board
 	 * @author R.Vasumini, A.Solini
 	 */
-	public String getCurrentKingPosition(){
+	public int getCurrentKingPosition(){
 		return this.currentKingPosition;
 	}
 	
@@ -397,18 +384,17 @@ public class State implements Serializable, Cloneable {
 		StringBuffer result = new StringBuffer();
 		for (int i = 0; i < this.board.getLength(); i++) {
 			for (int j = 0; j < this.board.getLength(); j++) {
-				if(this.board.getBoard()[i][j] == Pawn.EMPTY && this.board.getPositions().get(this.board.getBox(i,j)) == Position.CITADEL)
+				Pawn pawn = this.board.getPawn(i, j);
+				if(pawn == Pawn.EMPTY && Board.isCitadel(Board.toSquare(i, j)))
 					result.append("#  ");
-				else if(this.board.getBoard()[i][j] == Pawn.EMPTY)
+				else if(pawn == Pawn.EMPTY)
 					 result.append("-  ");
-				else if (this.board.getBoard()[i][j] == Pawn.KING)
+				else if (pawn == Pawn.KING)
 					result.append("K  ");
-				else if (this.board.getBoard()[i][j] == Pawn.BLACK)
+				else if (pawn == Pawn.BLACK)
 					result.append("B  ");
-				else if (this.board.getBoard()[i][j] == Pawn.WHITE)
+				else if (pawn == Pawn.WHITE)
 					result.append("W  ");
-				else if (this.board.getBoard()[i][j] == Pawn.THRONE)
-					result.append("#  ");
 					
 				if (j == 8) {
 					result.append("  " + (i+1));
@@ -455,7 +441,15 @@ public class State implements Serializable, Cloneable {
 	}
 
 	/**
-	 * Modified equals function for State class
+	 * @return The 64 bit Zobrist key of the state: the key of the pawns on the board, which is kept updated 
+	 * by the board at every move and capture, combined with the key of the player who has to move
+	 */
+	public long getKey() {
+		return this.board.getKey() ^ Zobrist.turn(this.turn);
+	}
+
+	/**
+	 * Modified equals function for State class, the boards are compared only if the keys are equal
 	 */
 	@Override
 	public boolean equals(Object obj) {
@@ -466,24 +460,7 @@ public class State implements Serializable, Cloneable {
 		if (this.getClass() != obj.getClass())
 			return false;
 		State other = (State) obj;
-		if (this.board.getBoard() == null) {
-			if (other.board != null)
-				return false;
-		} else {
-			if (other.board == null)
-				return false;
-			if (this.board.getBoard().length != other.getBoard().getLength())
-				return false;
-			if (this.board.getBoard()[0].length != other.board.getBoard()[0].length)
-				return false;
-			for (int i = 0; i < other.getBoard().getLength(); i++)
-				for (int j = 0; j < other.board.getBoard()[i].length; j++)
-					if (!this.board.getBoard()[i][j].equals(other.board.getBoard()[i][j]))
-						return false;
-		}
-		if (this.turn != other.turn)
-			return false;
-		return true;
+		return this.getKey() == other.getKey() && this.turn == other.turn && this.board.equals(other.board);
 	}
 
 	/**
@@ -491,11 +468,8 @@ public class State implements Serializable, Cloneable {
 	 */
 	@Override
 	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = prime * result + ((this.board.getBoard() == null) ? 0 : this.board.getBoard().hashCode());
-		result = prime * result + ((this.turn == null) ? 0 : this.turn.hashCode());
-		return result;
+		long key = getKey();
+		return (int) (key ^ (key >>> 32));
 	}
 
 	/**
@@ -503,51 +477,8 @@ public class State implements Serializable, Cloneable {
 	 * @author R.Vasumini, A.Solini
 	 */
 	@Override
-	@SuppressWarnings (value="unchecked")
 	public State clone() {
-		State result = new State();
-		Board oldboard = this.board;
-		Board newboard = result.getBoard();
-
-		for (int i = 0; i < this.board.getBoard().length; i++) 
-			for (int j = 0; j < this.board.getBoard()[i].length; j++) 
-				newboard.setPawn(i, j, oldboard.getPawn(i, j));
-
-		result.setCurrentKingPosition(this.currentKingPosition);
-		result.setTurnNumber(this.turnNumber);
-		
-		result.setPossibleBlackActions((HashMap<String, ArrayList<String>>) this.possibleBlackActions.clone());
-		result.setPossibleWhiteActions((HashMap<String, ArrayList<String>>) this.possibleWhiteActions.clone());
-		
-		result.setOldNumPawn(Turn.WHITE, this.oldNumWhite);
-		result.setOldNumPawn(Turn.BLACK, this.oldNumBlack);
-
-		try {
-			result.setLastAction(new Action(this.lastAction.getFrom(), this.lastAction.getTo(),
-					this.lastAction.getTurn()));
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-		
-		result.setBoard(newboard);
-		result.setTurn(this.turn);
-		return result;
-	}
-
-	/**
-	 * @param possibleWhiteActions the possibleWhiteActions to set
-	 * @author R.Vasumini, A.Solini
-	 */
-	public void setPossibleWhiteActions(HashMap<String, ArrayList<String>> possibleWhiteActions) {
-		this.possibleWhiteActions = possibleWhiteActions;
-	}
-
-	/**
-	 * @param possibleBlackActions the possibleBlackActions to set
-	 * @author R.Vasumini, A.Solini
-	 */
-	public void setPossibleBlackActions(HashMap<String, ArrayList<String>> possibleBlackActions) {
-		this.possibleBlackActions = possibleBlackActions;
+		return new State(this);
 	}
 
 	/**
@@ -1,13 +1,10 @@
 package domain;
 
-import java.io.IOException;
-import java.util.HashMap;
 import java.util.List;
 import aima.core.search.adversarial.Game;
 
 import domain.Action.Direction;
 import domain.Board.Pawn;
-import domain.Board.Position;
 import domain.State.Turn;
 import exceptions.*;
 
@@ -19,238 +16,343 @@ import exceptions.*;
  */
 public class TablutGame implements Game<State, Action, String> {
 
+	/**
+	 * The four directions of the rows and the columns
+	 */
+	private static final Direction[] SIDES = { Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT };
+
 	public final static double minValue = -100;
 	public final static double maxValue = 100;
-	private State initialState = new State();
-	private int movesWithoutCapturingWhite, movesWithoutCapturingBlack;
 
+	/*
+	 * Results of checkMove: LEGAL or the first rule broken by the move, in the order in which they are checked
+	 */
+	public static final int LEGAL = 0, THRONE = 1, OCCUPIED = 2, CITADEL = 3, STOP = 4, PAWN = 5, DIAGONAL = 6,
+			CLIMBING = 7, CLIMBING_CITADEL = 8;
+
+	/**
+	 * The rules hold no state, so the same instance can be used by all the search threads: what changes
+	 * during a game is kept in the State and in a GameContext owned by each thread
+	 */
 	public TablutGame(){
 		super();
-		this.movesWithoutCapturingBlack = 0;
-		this.movesWithoutCapturingWhite = 0;
 	}
 
 	/**
 	 * Method which controls if a pawn will capture an adversarial pawn given the following parameters:
 	 * @param board Current board
-	 * @param rowTo arrival row
-	 * @param columnTo arrival column
+	 * @param to arrival box
 	 * @param d Direction to control, NOT THE ACTION'S DIRECTION
 	 * @param t Player which tries to capture
 	 * @return {@code true} if the conditions are favorable to capture, {@code false} otherwhise
 	 * @author R.Vasumini, A.Solini
 	 */
-	public boolean checkCaptureConditions(Board board, int rowTo, int columnTo, Direction d, Turn t) {
-		HashMap<String, Position> positions = board.getPositions();
+	public boolean checkCaptureConditions(Board board, int to, Direction d, Turn t) {
+		int victim = getNeighbour(to, d, 1);
+		int anvil = getNeighbour(to, d, 2);
+		if (anvil == -1)
+			return false;
 		switch (t) {
 		case WHITE:
-			switch (d) {
-			case DOWN:
-				return (rowTo < board.getLength() - 2 
-						&& (board.getPawn(rowTo + 1, columnTo) == Pawn.BLACK)
-						&& ((board.getPawn(rowTo + 2, columnTo) == Pawn.WHITE)
-							|| (positions.get(board.getBox(rowTo + 2, columnTo)) == Position.THRONE)
-							|| (board.getPawn(rowTo + 2, columnTo) == Pawn.KING)
-							|| ((positions.get(board.getBox(rowTo + 2, columnTo)) == Position.CITADEL)
-								&& !(columnTo == 8 && rowTo + 2 == 4) 
-								&& !(columnTo == 4 && rowTo + 2 == 0)
-								&& !(columnTo == 4 && rowTo + 2 == 8) 
-								&& !(columnTo == 0 && rowTo + 2 == 4))));
-
-			case UP:
-				return (rowTo > 1 
-						&& (board.getPawn(rowTo - 1, columnTo) == Pawn.BLACK)
-						&& ((board.getPawn(rowTo - 2, columnTo) == Pawn.WHITE)
-							|| (positions.get(board.getBox(rowTo - 2, columnTo)) == Position.THRONE)
-							|| (board.getPawn(rowTo - 2, columnTo) == Pawn.KING)
-							|| ((positions.get(board.getBox(rowTo - 2, columnTo)) == Position.CITADEL)
-								&& !(columnTo == 8 && rowTo - 2 == 4) 
-								&& !(columnTo == 4 && rowTo - 2 == 0)
-								&& !(columnTo == 4 && rowTo - 2 == 8) 
-								&& !(columnTo == 0 && rowTo - 2 == 4))));
-
-			case RIGHT:
-				return (columnTo < board.getLength() - 2 
-						&& (board.getPawn(rowTo, columnTo + 1) == Pawn.BLACK)
-						&& ((board.getPawn(rowTo, columnTo + 2) == Pawn.WHITE)
-							|| (positions.get(board.getBox(rowTo, columnTo + 2)) == Position.THRONE)
-							|| (board.getPawn(rowTo, columnTo + 2) == Pawn.KING)
-							|| ((positions.get(board.getBox(rowTo, columnTo + 2)) == Position.CITADEL)
-								&& !(columnTo + 2 == 8 && rowTo == 4) 
-								&& !(columnTo + 2 == 4 && rowTo == 0)
-								&& !(columnTo + 2 == 4 && rowTo == 8) 
-								&& !(columnTo + 2 == 0 && rowTo == 4))));
-
-			case LEFT:
-				return (columnTo > 1 
-						&& (board.getPawn(rowTo, columnTo - 1) == Pawn.BLACK)
-						&& ((board.getPawn(rowTo, columnTo - 2) == Pawn.WHITE)
-							|| (positions.get(board.getBox(rowTo, columnTo - 2)) == Position.THRONE)
-							|| (board.getPawn(rowTo, columnTo - 2) == Pawn.KING)
-							|| ((positions.get(board.getBox(rowTo, columnTo - 2)) == Position.CITADEL)
-								&& !(columnTo - 2 == 8 && rowTo == 4) 
-								&& !(columnTo - 2 == 4 && rowTo == 0)
-								&& !(columnTo - 2 == 4 && rowTo == 8) 
-								&& !(columnTo - 2 == 0 && rowTo == 4))));
-
-			default:
-				return false;
+			return board.isBlack(victim) && board.isHostileToBlack(anvil);
+		case BLACK:
+			return board.isWhite(victim) && board.isHostileToWhite(anvil);
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Tells if a move captures at least one pawn without making it, it is used to order the moves
+	 * @param state the current state
+	 * @param move a move returned by getMoves for the specified state
+	 * @return {@code true} if the move captures an adversarial pawn (the capture of the king is not detected)
+	 */
+	public boolean isCapture(State state, int move) {
+		Board board = state.getBoard();
+		int to = Move.getTo(move);
+		boolean white = state.getTurn() == Turn.WHITE;
+		// The adversarial pawns next to the arrival box, most moves have none
+		long victimsLo = Board.NEIGHBOURS_LO[to] & (white ? board.getBlackLo() : board.getWhiteLo());
+		long victimsHi = Board.NEIGHBOURS_HI[to] & (white ? board.getBlackHi() : board.getWhiteHi());
+		for (; victimsLo != 0; victimsLo &= victimsLo - 1)
+			if (isCapturedFrom(board, Long.numberOfTrailingZeros(victimsLo), to, white))
+				return true;
+		for (; victimsHi != 0; victimsHi &= victimsHi - 1)
+			if (isCapturedFrom(board, 64 + Long.numberOfTrailingZeros(victimsHi), to, white))
+				return true;
+		return false;
+	}
+
+	/**
+	 * @param victim box of an adversarial pawn next to the arrival box
+	 * @param to arrival box of the moved pawn
+	 * @param white {@code true} if the white moves
+	 * @return {@code true} if the pawn in the box is captured against the box beyond it
+	 */
+	private static boolean isCapturedFrom(Board board, int victim, int to, boolean white) {
+		int anvil = 2 * victim - to;
+		if (anvil < 0 || anvil >= Board.SQUARES || (victim - to == 1 || to - victim == 1) && anvil / Board.SIZE != to / Board.SIZE)
+			return false;
+		return white ? board.isHostileToBlack(anvil) : !board.isKing(victim) && board.isHostileToWhite(anvil);
+	}
+
+	/**
+	 * Tells if a move of the black captures the king without making it
+	 * @param state the current state, the black is to move
+	 * @param move a move returned by getMoves for the specified state
+	 * @return {@code true} if the move captures the king and wins the game
+	 */
+	public boolean isKingCapture(State state, int move) {
+		return capturesKing(state.getBoard(), Move.getTo(move));
+	}
+
+	/**
+	 * @param to empty box where a black pawn arrives
+	 * @return {@code true} if a black pawn arriving in the box captures the king
+	 */
+	private static boolean capturesKing(Board board, int to) {
+		for (Direction d : SIDES) {
+			int king = getNeighbour(to, d, 1);
+			int beyond = getNeighbour(to, d, 2);
+			if (beyond == -1 || !board.isKing(king))
+				continue;
+			// The king on the throne or near the throne must be surrounded on the other sides
+			if (Board.isThrone(king) || Board.contains(Board.NEIGHBOURS_LO[king], Board.NEIGHBOURS_HI[king], Board.THRONE_SQUARE)) {
+				for (Direction side : SIDES) {
+					int square = getNeighbour(king, side, 1);
+					if (square != to && !Board.isThrone(square) && !board.isBlack(square))
+						return false;
+				}
+				return true;
 			}
+			return board.isBlack(beyond) || Board.isCitadel(beyond);
+		}
+		return false;
+	}
 
-		case BLACK:
-			switch (d) {
-			case DOWN:
-				return (rowTo < board.getLength() - 2 
-						&& (board.getPawn(rowTo + 1, columnTo) == Pawn.WHITE)
-						&& ((board.getPawn(rowTo + 2, columnTo) == Pawn.BLACK)
-							|| (positions.get(board.getBox(rowTo + 2, columnTo)) == Position.THRONE)
-							|| (positions.get(board.getBox(rowTo + 2, columnTo)) == Position.CITADEL)));
-
-			case UP:
-				return (rowTo > 1 
-						&& (board.getPawn(rowTo - 1, columnTo) == Pawn.WHITE)
-						&& ((board.getPawn(rowTo - 2, columnTo) == Pawn.BLACK)
-							|| (positions.get(board.getBox(rowTo - 2, columnTo)) == Position.THRONE)
-							|| (positions.get(board.getBox(rowTo - 2, columnTo)) == Position.CITADEL)));
-
-			case RIGHT:
-				return (columnTo < board.getLength() - 2 
-						&& (board.getPawn(rowTo, columnTo + 1) == Pawn.WHITE)
-						&& ((board.getPawn(rowTo, columnTo + 2) == Pawn.BLACK)
-							|| (positions.get(board.getBox(rowTo, columnTo + 2)) == Position.THRONE)
-							|| (positions.get(board.getBox(rowTo, columnTo + 2)) == Position.CITADEL)));
-
-			case LEFT:
-				return (columnTo > 1
-						&& (board.getPawn(rowTo, columnTo - 1) == Pawn.WHITE)
-						&& ((board.getPawn(rowTo, columnTo - 2) == Pawn.BLACK)
-							|| (positions.get(board.getBox(rowTo, columnTo - 2)) == Position.THRONE)
-							|| (positions.get(board.getBox(rowTo, columnTo - 2)) == Position.CITADEL)));
-
-			default:
-				return false;
+	/**
+	 * Tells if the king can reach an escape with its next move, along a row or a column
+	 * @param board Current board
+	 * @param square box of the king
+	 * @param ignore box considered empty, the box the king leaves, -1 if none
+	 * @return {@code true} if an escape is reachable from the box
+	 */
+	public static boolean seesEscape(Board board, int square, int ignore) {
+		for (Direction d : SIDES) {
+			for (int next = getNeighbour(square, d, 1); next != -1; next = getNeighbour(next, d, 1)) {
+				if ((next != ignore && !board.isEmpty(next)) || Board.isCitadel(next) || Board.isThrone(next))
+					break;
+				if (Board.contains(Board.ESCAPES_LO, Board.ESCAPES_HI, next))
+					return true;
 			}
+		}
+		return false;
+	}
 
+	/**
+	 * @return {@code true} if the king can escape with the next move of the white
+	 */
+	public boolean isEscapeThreatened(State state) {
+		int king = state.getBoard().getKingPosition();
+		return king != -1 && seesEscape(state.getBoard(), king, -1);
+	}
+
+	/**
+	 * Writes in the buffer the moves of the black which answer a threat of escape of the king: the moves
+	 * to the boxes between the king and the escapes it can reach, and the captures of the king
+	 * @param state the current state, the black is to move
+	 * @param moves buffer of at least Move.MAX_MOVES elements
+	 * @param target buffer of two elements for the target boxes, see GameContext.getTargetBuffer
+	 * @return The number of moves written in the buffer
+	 */
+	public int getEscapeReplies(State state, int[] moves, long[] target) {
+		Board board = state.getBoard();
+		int king = board.getKingPosition();
+		target[0] = target[1] = 0;
+		for (Direction d : SIDES) {
+			long lineLo = 0, lineHi = 0;
+			for (int next = getNeighbour(king, d, 1); next != -1; next = getNeighbour(next, d, 1)) {
+				if (!board.isEmpty(next) || Board.isCitadel(next) || Board.isThrone(next))
+					break;
+				if (next < 64)
+					lineLo |= 1L << next;
+				else
+					lineHi |= 1L << (next - 64);
+				if (Board.contains(Board.ESCAPES_LO, Board.ESCAPES_HI, next)) {
+					target[0] |= lineLo;
+					target[1] |= lineHi;
+					break;
+				}
+			}
+		}
+		addKingCaptures(board, king, target);
+		return addMoves(state, Turn.BLACK, target[0], target[1], moves, 0);
+	}
+
+	/**
+	 * Writes in the buffer only the tactical moves of the player who has to move, for the quiescence search:
+	 * the captures (of the king too) and the moves of the king which reach an escape or threaten to reach it.
+	 * The boxes where a pawn would capture are found from the adversarial pawns, so that only the moves
+	 * arriving there are kept
+	 * @param state the current state
+	 * @param moves buffer of at least Move.MAX_MOVES elements
+	 * @param target buffer of two elements for the target boxes, see GameContext.getTargetBuffer
+	 * @return The number of moves written in the buffer
+	 */
+	public int getTacticalMoves(State state, int[] moves, long[] target) {
+		Board board = state.getBoard();
+		boolean white = state.getTurn() == Turn.WHITE;
+		getCaptureBoxes(state, target);
+		int numMoves = getMovesTo(state, target, moves, 0);
+		int king = board.getKingPosition();
+		if (white && king != -1) {
+			int first = numMoves;
+			int last = state.getPossibleMoves(king, moves, numMoves);
+			for (int i = first; i < last; i++) {
+				int to = Move.getTo(moves[i]);
+				if (!Board.contains(target[0], target[1], to)
+						&& (Board.contains(Board.ESCAPES_LO, Board.ESCAPES_HI, to) || seesEscape(board, to, king)))
+					moves[numMoves++] = moves[i];
+			}
+		}
+		return numMoves;
+	}
+
+	/**
+	 * Finds the empty boxes where a pawn of the player who has to move would capture, the king too
+	 * @param state the current state
+	 * @param target bitboard of the boxes, low and high word, it is overwritten
+	 */
+	public void getCaptureBoxes(State state, long[] target) {
+		Board board = state.getBoard();
+		boolean white = state.getTurn() == Turn.WHITE;
+		target[0] = target[1] = 0;
+		long victimsLo = white ? board.getBlackLo() : board.getWhiteLo();
+		long victimsHi = white ? board.getBlackHi() : board.getWhiteHi();
+		for (long lo = victimsLo; lo != 0; lo &= lo - 1)
+			addCaptureBoxes(board, Long.numberOfTrailingZeros(lo), white, target);
+		for (long hi = victimsHi; hi != 0; hi &= hi - 1)
+			addCaptureBoxes(board, 64 + Long.numberOfTrailingZeros(hi), white, target);
+		int king = board.getKingPosition();
+		if (!white && king != -1)
+			addKingCaptures(board, king, target);
+	}
+
+	/**
+	 * Writes in the buffer the moves of the player who has to move which arrive in a target box
+	 * @param target bitboard of the boxes, low and high word
+	 * @param numMoves number of moves already in the buffer
+	 * @return The new number of moves in the buffer
+	 */
+	public int getMovesTo(State state, long[] target, int[] moves, int numMoves) {
+		return addMoves(state, state.getTurn(), target[0], target[1], moves, numMoves);
+	}
+
+	/**
+	 * Adds to the target the empty boxes where a pawn of the player would capture the specified victim
+	 * @param victim box of an adversarial pawn
+	 * @param white {@code true} if the white moves
+	 * @param target bitboard of the boxes, low and high word
+	 */
+	private static void addCaptureBoxes(Board board, int victim, boolean white, long[] target) {
+		for (Direction d : SIDES) {
+			int to = getNeighbour(victim, d, 1);
+			if (to != -1 && board.isEmpty(to) && isCapturedFrom(board, victim, to, white))
+				addBox(target, to);
+		}
+	}
+
+	/**
+	 * Adds to the target the empty boxes next to the king where a black pawn would capture it
+	 */
+	private static void addKingCaptures(Board board, int king, long[] target) {
+		for (Direction d : SIDES) {
+			int to = getNeighbour(king, d, 1);
+			if (to != -1 && board.isEmpty(to) && capturesKing(board, to))
+				addBox(target, to);
+		}
+	}
+
+	private static void addBox(long[] target, int square) {
+		if (square < 64)
+			target[0] |= 1L << square;
+		else
+			target[1] |= 1L << (square - 64);
+	}
+
+	/**
+	 * Writes in the buffer the moves of the player which arrive in a target box
+	 * @param turn the player who moves
+	 * @return The new number of moves in the buffer
+	 */
+	private static int addMoves(State state, Turn turn, long targetLo, long targetHi, int[] moves, int numMoves) {
+		Board board = state.getBoard();
+		if (targetLo == 0 && targetHi == 0)
+			return numMoves;
+		long ownLo = turn == Turn.WHITE ? board.getWhiteLo() : board.getBlackLo();
+		long ownHi = turn == Turn.WHITE ? board.getWhiteHi() : board.getBlackHi();
+		for (long lo = ownLo; lo != 0; lo &= lo - 1)
+			numMoves = addMoves(state, Long.numberOfTrailingZeros(lo), targetLo, targetHi, moves, numMoves);
+		for (long hi = ownHi; hi != 0; hi &= hi - 1)
+			numMoves = addMoves(state, 64 + Long.numberOfTrailingZeros(hi), targetLo, targetHi, moves, numMoves);
+		return numMoves;
+	}
+
+	private static int addMoves(State state, int from, long targetLo, long targetHi, int[] moves, int numMoves) {
+		int last = state.getPossibleMoves(from, moves, numMoves);
+		for (int i = numMoves; i < last; i++)
+			if (Board.contains(targetLo, targetHi, Move.getTo(moves[i])))
+				moves[numMoves++] = moves[i];
+		return numMoves;
+	}
+
+	/**
+	 * @param square box of the board
+	 * @param d direction of the box to find
+	 * @param distance number of boxes from the specified one
+	 * @return The box at the specified distance in the direction, -1 if it is outside the board
+	 */
+	private static int getNeighbour(int square, Direction d, int distance) {
+		int row = square / Board.SIZE, column = square % Board.SIZE;
+		switch (d) {
+		case DOWN:
+			return row + distance < Board.SIZE ? square + distance * Board.SIZE : -1;
+		case UP:
+			return row - distance >= 0 ? square - distance * Board.SIZE : -1;
+		case RIGHT:
+			return column + distance < Board.SIZE ? square + distance : -1;
+		case LEFT:
+			return column - distance >= 0 ? square - distance : -1;
 		default:
-			return false;
+			return -1;
 		}
 	}
 
 	/**
 	 * Method which controls the win of a specified player given the following parameters: 
 	 * @param board Current board
-	 * @param rowTo arrival row
-	 * @param columnTo arrival column
+	 * @param to arrival box
 	 * @param d Direction to control, NOT THE ACTION'S DIRECTION
 	 * @param t Player which tries to win
 	 * @return {@code true} if the conditions are favorable to win, {@code false} otherwhise
 	 * @author R.Vasumini, A.Solini
 	 */
-	public boolean checkWin(Board board, int rowTo, int columnTo, Direction d, Turn t) {
-		HashMap<String, Position> positions = board.getPositions();
+	public boolean checkWin(Board board, int to, Direction d, Turn t) {
 		switch (t) {
 		case WHITE:
-			return (board.getPawn(rowTo, columnTo) == Pawn.KING) 
-				&& (rowTo == 0 || rowTo == board.getLength() - 1 || columnTo == 0 || columnTo == board.getLength() - 1);
+			return board.isKing(to) && Board.contains(Board.ESCAPES_LO, Board.ESCAPES_HI, to);
 
 		case BLACK:
-			switch (d) {
-			case DOWN:
-				return (rowTo < board.getLength() - 2 && board.getPawn(rowTo + 1, columnTo) == Pawn.KING
-						&& ((board.getBox(rowTo + 1, columnTo).equals("e5") // king on the throne
-							&& board.getPawn(5, 4) == Pawn.BLACK 
-							&& board.getPawn(4, 5) == Pawn.BLACK
-							&& board.getPawn(4, 3) == Pawn.BLACK)
-							|| (board.getBox(rowTo + 1, columnTo).equals("e4") // king near the throne
-								&& board.getPawn(3, 3) == Pawn.BLACK 
-								&& board.getPawn(3, 5) == Pawn.BLACK)
-							|| (board.getBox(rowTo + 1, columnTo).equals("d5")
-								&& board.getPawn(4, 2) == Pawn.BLACK 
-								&& board.getPawn(5, 3) == Pawn.BLACK)
-							|| (board.getBox(rowTo + 1, columnTo).equals("f5")
-								&& board.getPawn(4, 6) == Pawn.BLACK 
-								&& board.getPawn(5, 5) == Pawn.BLACK)
-							|| (!board.getBox(rowTo + 1, columnTo).equals("d5") // king outside the throne areas
-								&& !board.getBox(rowTo + 1, columnTo).equals("e4")
-								&& !board.getBox(rowTo + 1, columnTo).equals("f5")
-								&& !board.getBox(rowTo + 1, columnTo).equals("e5")
-								&& (board.getPawn(rowTo + 2, columnTo) == Pawn.BLACK
-									|| (positions.get(board.getBox(rowTo + 2, columnTo)) == Position.CITADEL))))
-
-						);
-
-			case UP:
-				return (rowTo > 1 && board.getPawn(rowTo - 1, columnTo) == Pawn.KING
-						&& ((board.getBox(rowTo - 1, columnTo).equals("e5") // king on the throne
-							&& board.getPawn(3, 4) == Pawn.BLACK 
-							&& board.getPawn(4, 5) == Pawn.BLACK
-							&& board.getPawn(4, 3) == Pawn.BLACK)
-							|| (board.getBox(rowTo - 1, columnTo).equals("e6") // king near the throne
-								&& board.getPawn(5, 3) == Pawn.BLACK 
-								&& board.getPawn(5, 5) == Pawn.BLACK)
-							|| (board.getBox(rowTo - 1, columnTo).equals("d5")
-								&& board.getPawn(4, 2) == Pawn.BLACK 
-								&& board.getPawn(3, 3) == Pawn.BLACK)
-							|| (board.getBox(rowTo - 1, columnTo).equals("f5")
-								&& board.getPawn(4, 6) == Pawn.BLACK 
-								&& board.getPawn(3, 5) == Pawn.BLACK)
-							|| (!board.getBox(rowTo - 1, columnTo).equals("d5") // king outside the throne areas
-								&& !board.getBox(rowTo - 1, columnTo).equals("e4")
-								&& !board.getBox(rowTo - 1, columnTo).equals("f5")
-								&& !board.getBox(rowTo - 1, columnTo).equals("e5")
-								&& (board.getPawn(rowTo - 2, columnTo) == Pawn.BLACK
-									|| (positions.get(board.getBox(rowTo - 2, columnTo)) == Position.CITADEL))))
-						);
-
-			case RIGHT:
-				return (columnTo < board.getLength() - 2 && board.getPawn(rowTo, columnTo + 1) == Pawn.KING
-						&& ((board.getBox(rowTo, columnTo + 1).equals("e5") // king on the throne
-							&& board.getPawn(3, 4) == Pawn.BLACK 
-							&& board.getPawn(4, 5) == Pawn.BLACK
-							&& board.getPawn(5, 4) == Pawn.BLACK)
-							|| (board.getBox(rowTo, columnTo + 1).equals("e4") // king near the throne
-								&& board.getPawn(2, 4) == Pawn.BLACK 
-								&& board.getPawn(3, 5) == Pawn.BLACK)
-							|| (board.getBox(rowTo, columnTo + 1).equals("e6")
-								&& board.getPawn(5, 5) == Pawn.BLACK 
-								&& board.getPawn(6, 4) == Pawn.BLACK)
-							|| (board.getBox(rowTo, columnTo + 1).equals("d5")
-								&& board.getPawn(3, 3) == Pawn.BLACK 
-								&& board.getPawn(5, 3) == Pawn.BLACK)
-							|| (!board.getBox(rowTo, columnTo + 1).equals("d5") // king outside the throne areas
-								&& !board.getBox(rowTo, columnTo + 1).equals("e6")
-								&& !board.getBox(rowTo, columnTo + 1).equals("e4")
-								&& !board.getBox(rowTo, columnTo + 1).equals("e5")
-								&& (board.getPawn(rowTo, columnTo + 2) == Pawn.BLACK 
-									|| (positions.get(board.getBox(rowTo, columnTo + 2)) == Position.CITADEL))))
-						);
-
-			case LEFT:
-				return (columnTo > 1 && board.getPawn(rowTo, columnTo - 1) == Pawn.KING 
-						&& ((board.getBox(rowTo, columnTo - 1).equals("e5") // king on the throne
-							&& board.getPawn(3, 4) == Pawn.BLACK 
-							&& board.getPawn(4, 3) == Pawn.BLACK
-							&& board.getPawn(5, 4) == Pawn.BLACK)
-							|| (board.getBox(rowTo, columnTo - 1).equals("e4") // king near the throne
-								&& board.getPawn(2, 4) == Pawn.BLACK 
-								&& board.getPawn(3, 3) == Pawn.BLACK)
-							|| (board.getBox(rowTo, columnTo - 1).equals("f5")
-								&& board.getPawn(3, 5) == Pawn.BLACK 
-								&& board.getPawn(5, 5) == Pawn.BLACK)
-							|| (board.getBox(rowTo, columnTo + 1).equals("e6")
-								&& board.getPawn(5, 3) == Pawn.BLACK 
-								&& board.getPawn(6, 4) == Pawn.BLACK)
-							|| (!board.getBox(rowTo, columnTo - 1).equals("e5") // king outside the throne areas
-								&& !board.getBox(rowTo, columnTo - 1).equals("e6")
-								&& !board.getBox(rowTo, columnTo - 1).equals("e4")
-								&& !board.getBox(rowTo, columnTo - 1).equals("f5")
-								&& (board.getPawn(rowTo, columnTo - 2) == Pawn.BLACK 
-									|| (positions.get(board.getBox(rowTo, columnTo - 2)) == Position.CITADEL))))
-						);
-
-			default:
+			int king = getNeighbour(to, d, 1);
+			int beyond = getNeighbour(to, d, 2);
+			if (beyond == -1 || !board.isKing(king))
 				return false;
-			}
+			// The king on the throne or near the throne must be surrounded on the other sides
+			if (Board.isThrone(king) || Board.contains(Board.NEIGHBOURS_LO[king], Board.NEIGHBOURS_HI[king], Board.THRONE_SQUARE))
+				return board.isSurroundedByBlack(king);
+			// The king outside the throne areas is captured like a pawn
+			return board.isBlack(beyond) || Board.isCitadel(beyond);
 
 		default:
 			return false;
@@ -259,7 +361,8 @@ public class TablutGame implements Game<State, Action, String> {
 	}
 
 	/**
-	 * Throws different exceptions if it encounters a problem in the action to be executed in the specified state
+	 * Checks an action which doesn't come from getActions, for example an action read from the network, and
+	 * throws the exception which explains why it is not legal
 	 * @param state
 	 * @param action
 	 * @throws BoardException
@@ -273,188 +376,128 @@ public class TablutGame implements Game<State, Action, String> {
 	 * @throws ClimbingCitadelException
 	 * @throws CitadelException
 	 */
-	private void checkMove(State state, Action action) throws BoardException, ActionException, StopException,PawnException, DiagonalException,
+	public void checkAction(State state, Action action) throws BoardException, ActionException, StopException,PawnException, DiagonalException,
 														ClimbingException, ThroneException, OccupitedException, ClimbingCitadelException, 
 														CitadelException {
-
-		Board board = state.getBoard();
-		HashMap<String, Position> positions = board.getPositions();
-		int rowFrom = action.getRowFrom(), columnFrom = action.getColumnFrom();
-		int rowTo = action.getRowTo(), columnTo = action.getColumnTo();
-		String boxFrom = board.getBox(rowFrom, columnFrom);
-		String boxTo = board.getBox(rowTo, columnTo);
-		Pawn pawnFrom = board.getPawn(rowFrom, columnFrom);
-		Pawn pawnTo = board.getPawn(rowTo, columnTo);
-		int length = board.getLength();
-		Position positionFrom = positions.get(boxFrom);
-		Position positionTo = positions.get(boxTo);
-		Turn turn = state.getTurn();
-
 		// Checks strings length 
 		if (action.getTo().length() != 2 || action.getFrom().length() != 2) {
 			throw new ActionException(action);
 		}
 
 		// Checks if iI try to go outside the board
-		if (columnFrom > length - 1 || rowFrom > length - 1 || rowTo > length - 1
-				|| columnTo > board.getLength() || columnFrom < 0 || rowFrom < 0 || rowTo < 0 || columnTo < 0) {
+		int rowFrom = action.getRowFrom(), columnFrom = action.getColumnFrom();
+		int rowTo = action.getRowTo(), columnTo = action.getColumnTo();
+		if (!isOnBoard(rowFrom, columnFrom) || !isOnBoard(rowTo, columnTo)) {
 			throw new BoardException(action);
 		}
 
-		// Checks if i try to go on the throne
-		if (positionTo == Position.THRONE) {
+		switch (checkMove(state, Move.of(Board.toSquare(rowFrom, columnFrom), Board.toSquare(rowTo, columnTo)))) {
+		case THRONE:
 			throw new ThroneException(action);
-		}
-
-		// Checks if my arrival position is occupied
-		if (pawnTo != Pawn.EMPTY) {
+		case OCCUPIED:
 			throw new OccupitedException(action);
-		}
-		if (positionTo == Position.CITADEL && positionFrom != Position.CITADEL) {
+		case CITADEL:
 			throw new CitadelException(action);
-		}
-		if (positionTo == Position.CITADEL && positionFrom == Position.CITADEL) {
-			if (rowFrom == rowTo) {
-				if (columnFrom - columnTo > 5 || columnFrom - columnTo < -5) {
-					throw new CitadelException(action);
-				}
-			} else {
-				if (rowFrom - rowTo > 5 || rowFrom - rowTo < -5) {
-					throw new CitadelException(action);
-				}
-			}
-		}
-
-		// Checks if  I try not to move
-		if (rowFrom == rowTo && columnFrom == columnTo) {
+		case STOP:
 			throw new StopException(action);
+		case PAWN:
+			throw new PawnException(action);
+		case DIAGONAL:
+			throw new DiagonalException(action);
+		case CLIMBING:
+			throw new ClimbingException(action);
+		case CLIMBING_CITADEL:
+			throw new ClimbingCitadelException(action);
+		default:
+			break;
 		}
+	}
 
-		// Checks if I'm trying to move an adversarial pawn
-		if (turn == Turn.WHITE) {
-			if (pawnFrom != Pawn.WHITE && pawnFrom != Pawn.KING) {
-				throw new PawnException(action);
-			}
-		}
-		if (turn == Turn.BLACK) {
-			if (pawnFrom != Pawn.BLACK) {
-				throw new PawnException(action);
-			}
-		}
+	private static boolean isOnBoard(int row, int column) {
+		return row >= 0 && row < Board.SIZE && column >= 0 && column < Board.SIZE;
+	}
 
-		// Checks if I try to do a diagonal move
-		if (rowFrom != rowTo && columnFrom != columnTo) {
-			throw new DiagonalException(action);
-		}
+	/**
+	 * Checks if a move is legal in the specified state without creating any object. The moves returned by
+	 * getMoves and getActions are always legal and don't need to be checked
+	 * @param state
+	 * @param move a packed move whose boxes are on the board
+	 * @return LEGAL or the code of the first rule that the move breaks
+	 */
+	public int checkMove(State state, int move) {
+		Board board = state.getBoard();
+		int from = Move.getFrom(move), to = Move.getTo(move);
+		int rowFrom = from / Board.SIZE, columnFrom = from % Board.SIZE;
+		int rowTo = to / Board.SIZE, columnTo = to % Board.SIZE;
+		boolean fromCitadel = Board.isCitadel(from);
 
-		// Checks if I try to jump some pawns
-		if (rowFrom == rowTo) {
-			if (columnFrom > columnTo) {
-				for (int i = columnTo; i < columnFrom; i++) {
-					Position position = positions.get(board.getBox(rowFrom, i));
-					if (board.getPawn(rowFrom, i) != Pawn.EMPTY) {
-						if (position == Position.THRONE) {
-							throw new ClimbingException(action);
-						} else {
-							throw new ClimbingException(action);
-						}
-					}
-					if (position == Position.CITADEL && positionFrom != Position.CITADEL) {
-						throw new ClimbingCitadelException(action);
-					}
-				}
-			} else {
-				for (int i = columnFrom + 1; i <= columnTo; i++) {
-					Position position = positions.get(board.getBox(rowFrom, i));
-					if (board.getPawn(rowFrom, i) != Pawn.EMPTY) {
-						if (positionTo == Position.THRONE) {
-							throw new ClimbingException(action);
-						} else {
-							throw new ClimbingException(action);
-						}
-					}
-					if (position == Position.CITADEL && positionFrom != Position.CITADEL) {
-						throw new ClimbingCitadelException(action);
-					}
-				}
-			}
-		} else {
-			if (rowFrom > rowTo) {
-				for (int i = rowTo; i < rowFrom; i++) {
-					Position position = positions.get(board.getBox(i, columnFrom));
-					if (board.getPawn(i, columnFrom) != Pawn.EMPTY){
-						if (position == Position.THRONE) {
-							throw new ClimbingException(action);
-						} else {
-							throw new ClimbingException(action);
-						}
-					}
-					if (position == Position.CITADEL && positionFrom != Position.CITADEL) {
-						throw new ClimbingCitadelException(action);
-					}
-				}
-			} else {
-				for (int i = rowFrom + 1; i <= rowTo; i++) {
-					Position position = positions.get(board.getBox(i, columnFrom));
-					if (board.getPawn(i, columnFrom) != Pawn.EMPTY) {
-						if (position == Position.THRONE) {
-							throw new ClimbingException(action);
-						} else {
-							throw new ClimbingException(action);
-						}
-					}
-					if (position == Position.CITADEL && positionFrom != Position.CITADEL) {
-						throw new ClimbingCitadelException(action);
-					}
-				}
-			}
+		// Checks if i try to go on the throne
+		if (Board.isThrone(to))
+			return THRONE;
+		// Checks if my arrival position is occupied
+		if (!board.isEmpty(to))
+			return OCCUPIED;
+		if (Board.isCitadel(to)) {
+			if (!fromCitadel)
+				return CITADEL;
+			if (Math.abs(columnFrom - columnTo) > 5 || Math.abs(rowFrom - rowTo) > 5)
+				return CITADEL;
 		}
+		// Checks if I try not to move
+		if (from == to)
+			return STOP;
+		// Checks if I'm trying to move an adversarial pawn
+		if (state.getTurn() == Turn.WHITE ? !board.isWhite(from) && !board.isKing(from) : !board.isBlack(from))
+			return PAWN;
+		// Checks if I try to do a diagonal move
+		if (rowFrom != rowTo && columnFrom != columnTo)
+			return DIAGONAL;
+		// Checks if I try to jump some pawns, the throne or the citadels
+		int step = rowFrom == rowTo ? (columnTo > columnFrom ? 1 : -1) : (rowTo > rowFrom ? Board.SIZE : -Board.SIZE);
+		for (int square = from + step; square != to; square += step) {
+			if (!board.isEmpty(square) || Board.isThrone(square))
+				return CLIMBING;
+			if (Board.isCitadel(square) && !fromCitadel)
+				return CLIMBING_CITADEL;
+		}
+		return LEGAL;
 	}
 
 	/**
+	 * Makes the action without checking it: it must be legal, like the actions returned by getActions
+	 * (see checkAction for the actions coming from outside)
 	 * @return The state with the move made
 	 */
 	public State makeMove(State state, Action action){
-		try{
-			checkMove(state, action);
-		} catch(Exception e){
-			e.printStackTrace();
-		}
 		Turn turn = state.getTurn();
-		// Move checked, makes the move
-		state = this.movePawn(state, action);
+		int move = Move.fromAction(action);
+		state = this.movePawn(state, move);
 
 		// Checks if  the move involves a capture
 		if (turn == Turn.BLACK) {
-			state = this.checkCaptureBlack(state, action);
+			state = this.checkCaptureBlack(state, Move.getTo(move), null);
 		} else if (turn == Turn.WHITE) {
-			state = this.checkCaptureWhite(state, action);
+			state = this.checkCaptureWhite(state, Move.getTo(move), null);
 		}
 		return state;
 	}
 
 	/**
 	 * @param state
-	 * @param action
+	 * @param move
 	 * @return The state with the pawn moved
 	 */
-	private State movePawn(State state, Action action) {
+	private State movePawn(State state, int move) {
 		Board board = state.getBoard();
-		int rowTo = action.getRowTo(), columnTo = action.getColumnTo();
-		int rowFrom = action.getRowFrom(), columnFrom = action.getColumnFrom();
-		Pawn pawn = board.getPawn(rowFrom, columnFrom);
-		Board newBoard = board;
+		int from = Move.getFrom(move), to = Move.getTo(move);
 
-		newBoard.removePawn(rowFrom, columnFrom);
-		// Puts the pawn moved in the board
-		newBoard.setPawn(rowTo, columnTo, pawn);
+		// Moves the pawn in the board, the board updates its Zobrist key
+		board.movePawn(from, to);
 		//If the moved pawn is the king, changes his current position
-		if(pawn == Pawn.KING)
-			state.setCurrentKingPosition(action.getTo());
-		// Updates the board
-		state.setBoard(newBoard);
-		//Updates last action
-		state.setLastAction(action);
+		if(board.isKing(to))
+			state.setCurrentKingPosition(to);
+		//Updates last move
+		state.setLastMove(move);
 		//Increments the turn number since the action is done
 		state.incrementTurnNumber();
 		return state;
@@ -466,32 +509,32 @@ public class TablutGame implements Game<State, Action, String> {
 	 * @return The state with the black pawns eaten by the white
 	 */
 	public State checkCaptureWhite(State state, Action action) {
-		boolean captured = false;
+		return checkCaptureWhite(state, Board.toSquare(action.getTo()), null);
+	}
+
+	/**
+	 * @param state
+	 * @param to arrival box of the moved pawn
+	 * @param undo record where the captured boxes are saved, it can be null
+	 * @return The state with the black pawns eaten by the white
+	 */
+	private State checkCaptureWhite(State state, int to, Undo undo) {
 		Board board = state.getBoard();
-		int rowTo = action.getRowTo(), columnTo = action.getColumnTo();
 		
-		if (checkCaptureConditions(board, rowTo, columnTo, Direction.DOWN, Turn.WHITE)) {
-			board.removePawn(rowTo + 1, columnTo);
-			captured = true;
+		if (checkCaptureConditions(board, to, Direction.DOWN, Turn.WHITE)) {
+			capture(board, to + Board.SIZE, undo);
 		}
-		if (checkCaptureConditions(board, rowTo, columnTo, Direction.UP, Turn.WHITE)) {
-			board.removePawn(rowTo - 1, columnTo);
-			captured = true;
+		if (checkCaptureConditions(board, to, Direction.UP, Turn.WHITE)) {
+			capture(board, to - Board.SIZE, undo);
 		}
-		if (checkCaptureConditions(board, rowTo, columnTo, Direction.LEFT, Turn.WHITE)) {
-			board.removePawn(rowTo, columnTo - 1);
-			captured = true;
+		if (checkCaptureConditions(board, to, Direction.LEFT, Turn.WHITE)) {
+			capture(board, to - 1, undo);
 		}
-		if (checkCaptureConditions(board, rowTo, columnTo, Direction.RIGHT, Turn.WHITE)) {
-			board.removePawn(rowTo, columnTo + 1);
-			captured = true;	
+		if (checkCaptureConditions(board, to, Direction.RIGHT, Turn.WHITE)) {
+			capture(board, to + 1, undo);
 		}
-		if(captured)
-			this.movesWithoutCapturingWhite = 0;
-		else
-			this.movesWithoutCapturingWhite++;
 
-		if(checkWhiteWin(state, action))
+		if(checkWin(board, to, Direction.ANY, Turn.WHITE))
 			state.setTurn(Turn.WHITEWIN);
 
 		return state;
@@ -503,36 +546,48 @@ public class TablutGame implements Game<State, Action, String> {
 	 * @return The state with the white pawns eaten by the black
 	 */
 	public State checkCaptureBlack(State state, Action action) {
-		boolean captured = false;
+		return checkCaptureBlack(state, Board.toSquare(action.getTo()), null);
+	}
+
+	/**
+	 * @param state
+	 * @param to arrival box of the moved pawn
+	 * @param undo record where the captured boxes are saved, it can be null
+	 * @return The state with the white pawns eaten by the black
+	 */
+	private State checkCaptureBlack(State state, int to, Undo undo) {
 		Board board = state.getBoard();
-		int rowTo = action.getRowTo(), columnTo = action.getColumnTo();
 
-		if (checkCaptureConditions(board, rowTo, columnTo, Direction.RIGHT, Turn.BLACK)) {
-			board.removePawn(rowTo, columnTo + 1);
-			captured = true;
+		if (checkCaptureConditions(board, to, Direction.RIGHT, Turn.BLACK)) {
+			capture(board, to + 1, undo);
 		}
-		if (checkCaptureConditions(board, rowTo, columnTo, Direction.LEFT, Turn.BLACK)) {
-			board.removePawn(rowTo, columnTo - 1);
-			captured = true;
+		if (checkCaptureConditions(board, to, Direction.LEFT, Turn.BLACK)) {
+			capture(board, to - 1, undo);
 		}
-		if (checkCaptureConditions(board, rowTo, columnTo, Direction.UP, Turn.BLACK)) {
-			board.removePawn(rowTo - 1, columnTo);
-			captured = true;
+		if (checkCaptureConditions(board, to, Direction.UP, Turn.BLACK)) {
+			capture(board, to - Board.SIZE, undo);
 		}
-		if (checkCaptureConditions(board, rowTo, columnTo, Direction.DOWN, Turn.BLACK)) {
-			board.removePawn(rowTo + 1, columnTo);
-			captured = true;
+		if (checkCaptureConditions(board, to, Direction.DOWN, Turn.BLACK)) {
+			capture(board, to + Board.SIZE, undo);
 		}
-		if (captured)
-			this.movesWithoutCapturingBlack = 0;
-		else
-			this.movesWithoutCapturingBlack++;
 
-		if(checkBlackWin(state, action))
+		if(checkBlackWin(board, to))
 			state.setTurn(Turn.BLACKWIN);
 
 		return state;
 	}
+
+	/**
+	 * Removes a captured pawn from the board
+	 * @param board Current board
+	 * @param square box of the captured pawn
+	 * @param undo record where the captured box is saved, it can be null
+	 */
+	private void capture(Board board, int square, Undo undo) {
+		board.removePawn(square);
+		if (undo != null)
+			undo.addCaptured(square);
+	}
 	
 	/**
 	 * @param state
@@ -540,9 +595,7 @@ public class TablutGame implements Game<State, Action, String> {
 	 * @return {@code true} if the white wins with the specified action in current state, {@code false} otherwise
 	 */
 	public boolean checkWhiteWin(State state, Action action){
-		Board board = state.getBoard();
-		int rowTo = action.getRowTo(), columnTo = action.getColumnTo();
-		return checkWin(board, rowTo, columnTo, Direction.ANY, Turn.WHITE);
+		return checkWin(state.getBoard(), Board.toSquare(action.getTo()), Direction.ANY, Turn.WHITE);
 	}
 
 	/**
@@ -551,12 +604,14 @@ public class TablutGame implements Game<State, Action, String> {
 	 * @return {@code true} if the black wins with the specified action in current state, {@code false} otherwise
 	 */
 	public boolean checkBlackWin(State state, Action action){
-		Board board = state.getBoard();
-		int rowTo = action.getRowTo(), columnTo = action.getColumnTo();
-		return (checkWin(board, rowTo, columnTo, Direction.DOWN, Turn.BLACK)
-				|| checkWin(board, rowTo, columnTo, Direction.UP, Turn.BLACK)
-				|| checkWin(board, rowTo, columnTo, Direction.RIGHT, Turn.BLACK)
-				|| checkWin(board, rowTo, columnTo, Direction.LEFT, Turn.BLACK)) ;
+		return checkBlackWin(state.getBoard(), Board.toSquare(action.getTo()));
+	}
+
+	private boolean checkBlackWin(Board board, int to){
+		return (checkWin(board, to, Direction.DOWN, Turn.BLACK)
+				|| checkWin(board, to, Direction.UP, Turn.BLACK)
+				|| checkWin(board, to, Direction.RIGHT, Turn.BLACK)
+				|| checkWin(board, to, Direction.LEFT, Turn.BLACK)) ;
 	}
 
 	/**
@@ -565,20 +620,7 @@ public class TablutGame implements Game<State, Action, String> {
 	 * @author R.Vasumini, A.Solini
 	 */
 	public int numWhiteNearTheKing(State state){
-		int result = 0;
-		Board board = state.getBoard();
-		String currentKingPosition = state.getCurrentKingPosition();
-
-		if(board.getPawnDown(currentKingPosition) == Pawn.WHITE)
-			result++;
-		if(board.getPawnUp(currentKingPosition) == Pawn.WHITE)
-			result++;
-		if(board.getPawnLeft(currentKingPosition) == Pawn.WHITE)
-			result++;
-		if(board.getPawnRight(currentKingPosition) == Pawn.WHITE)
-			result++;
-
-		return result;
+		return state.getBoard().numWhiteNear(state.getCurrentKingPosition());
 	}
 
 	/**
@@ -587,20 +629,17 @@ public class TablutGame implements Game<State, Action, String> {
 	 * @author R.Vasumini, A.Solini
 	 */
 	public int numBlackNearTheKing(State state){
-		int result = 0;
-		Board board = state.getBoard();
-		String currentKingPosition = state.getCurrentKingPosition();
-
-		if(board.getPawnDown(currentKingPosition) == Pawn.BLACK)
-			result++;
-		if(board.getPawnUp(currentKingPosition) == Pawn.BLACK)
-			result++;
-		if(board.getPawnLeft(currentKingPosition) == Pawn.BLACK)
-			result++;
-		if(board.getPawnRight(currentKingPosition) == Pawn.BLACK)
-			result++;
+		return state.getBoard().numBlackNear(state.getCurrentKingPosition());
+	}
 
-		return result;
+	/**
+	 * Writes the possible moves in the current state in the specified buffer, without creating any object
+	 * @param state the current state
+	 * @param moves buffer of at least Move.MAX_MOVES elements
+	 * @return The number of moves written in the buffer
+	 */
+	public int getMoves(State state, int[] moves) {
+		return state.getMoves(moves);
 	}
 
 	/**
@@ -609,12 +648,7 @@ public class TablutGame implements Game<State, Action, String> {
 	 */	
 	@Override
 	public List<Action> getActions(State state) {
-		try {
-			return state.getActionList(state.getTurn());
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-		return null;
+		return state.getActionList(state.getTurn());
 	}
 
 	/**
@@ -622,7 +656,7 @@ public class TablutGame implements Game<State, Action, String> {
 	 */
 	@Override
 	public State getInitialState() {
-		return initialState;
+		return new State();
 	}
 
 	/**
@@ -655,32 +689,100 @@ public class TablutGame implements Game<State, Action, String> {
 	@Override
 	public State getResult(State state, Action action) {
 		State result = state.clone();
-		try{
-			result = movePawn(result, action);
-			if(action.getTurn() == Turn.WHITE){
-				result = checkCaptureWhite(result, action);			
-				result.setOldNumPawn(Turn.BLACK, result.getNumBlack());
-				result.eatenUpdate(result.getBoard(), Turn.BLACK);
-				result.updatePossibleActionsKeySet(action.getFrom(), action.getTo(), Turn.WHITE);
-				result.updatePossibleActions(Turn.BLACK);
-				if(!(result.getTurn() == Turn.WHITEWIN))
-					result.setTurn(Turn.BLACK);
-			}
-			else if(action.getTurn() == Turn.BLACK){
-				result = checkCaptureBlack(result, action);					
-				result.setOldNumPawn(Turn.WHITE, result.getNumWhite());
-				result.eatenUpdate(result.getBoard(), Turn.WHITE);
-				result.updatePossibleActionsKeySet(action.getFrom(), action.getTo(), Turn.BLACK);
-				result.updatePossibleActions(Turn.WHITE);
-				if(!(result.getTurn() == Turn.BLACKWIN))
-					result.setTurn(Turn.WHITE);
-			}
-		} catch(Exception e){
-			e.printStackTrace();
-		}
+		makeMove(result, Move.fromAction(action), new Undo());
 		return result;
 	}
 
+	/**
+	 * Same as makeMove with the packed move of the action
+	 * @param state The state in which the action is made, it is modified
+	 * @param action An action returned by getActions for the specified state
+	 * @param undo The record which will be filled by the action, it can be reused after unmakeMove
+	 */
+	public void makeMove(State state, Action action, Undo undo) {
+		makeMove(state, Move.fromAction(action), undo);
+	}
+
+	/**
+	 * Makes the move in place on the specified state, without checking it, and updates the possible actions
+	 * of both players: only the moved pawn and the pawns which see the departure, arrival or captured boxes 
+	 * along a row or a column get their actions recomputed.
+	 * What is needed to take the move back is saved in the undo record
+	 * @param state The state in which the move is made, it is modified
+	 * @param move A move returned by getMoves for the specified state
+	 * @param undo The record which will be filled by the move, it can be reused after unmakeMove
+	 */
+	public void makeMove(State state, int move, Undo undo) {
+		Turn turn = state.getTurn();
+		Turn opponent = (turn == Turn.WHITE) ? Turn.BLACK : Turn.WHITE;
+		int from = Move.getFrom(move), to = Move.getTo(move);
+
+		undo.save(state, move);
+		movePawn(state, move);
+		if (turn == Turn.WHITE) {
+			checkCaptureWhite(state, to, undo);
+			state.setOldNumPawn(Turn.BLACK, state.getNumBlack());
+		} else {
+			checkCaptureBlack(state, to, undo);
+			state.setOldNumPawn(Turn.WHITE, state.getNumWhite());
+		}
+		state.updatePossibleActionsOf(to, undo);
+		state.updatePossibleActionsAround(from, undo);
+		state.updatePossibleActionsAround(to, undo);
+		for (int i = 0; i < undo.numCaptured; i++)
+			state.updatePossibleActionsAround(undo.captured[i], undo);
+		if (state.getTurn() == turn)
+			state.setTurn(opponent);
+	}
+
+	/**
+	 * Takes back the last action made on the specified state with makeMove
+	 * @param state The state in which the action has been made
+	 * @param undo The record filled by makeMove
+	 */
+	public void unmakeMove(State state, Undo undo) {
+		Turn turn = undo.turn;
+		Pawn captured = (turn == Turn.WHITE) ? Pawn.BLACK : Pawn.WHITE;
+		Board board = state.getBoard();
+		int from = Move.getFrom(undo.move), to = Move.getTo(undo.move);
+
+		state.restorePossibleActions(undo);
+		board.movePawn(to, from);
+		for (int i = 0; i < undo.numCaptured; i++)
+			board.setPawn(undo.captured[i], captured);
+
+		state.setTurn(undo.turn);
+		state.setLastMove(undo.lastMove);
+		state.setCurrentKingPosition(undo.kingPosition);
+		state.setTurnNumber(undo.turnNumber);
+		state.setOldNumPawn(Turn.WHITE, undo.oldNumWhite);
+		state.setOldNumPawn(Turn.BLACK, undo.oldNumBlack);
+	}
+
+	/**
+	 * Same as makeMove, it also updates the moves without capturing kept in the context
+	 * @param context The context of the thread which makes the move
+	 * @param state The state in which the move is made, it is modified
+	 * @param move A move returned by getMoves for the specified state
+	 * @param undo The record which will be filled by the move, it can be reused after unmakeMove
+	 */
+	public void makeMove(GameContext context, State state, int move, Undo undo) {
+		Turn turn = state.getTurn();
+		makeMove(state, move, undo);
+		undo.movesWithoutCapturing = context.update(turn, undo.numCaptured > 0);
+	}
+
+	/**
+	 * Takes back the last action made on the specified state with makeMove(GameContext, State, int, Undo)
+	 * @param context The context used to make the action
+	 * @param state The state in which the action has been made
+	 * @param undo The record filled by makeMove
+	 */
+	public void unmakeMove(GameContext context, State state, Undo undo) {
+		unmakeMove(state, undo);
+		context.restore(undo.turn, undo.movesWithoutCapturing);
+	}
+
 	/**
 	 * This function is called only by the eval function in TimeLimitedSearch class in case of end game
 	 * @param state the current state
@@ -710,32 +812,4 @@ public class TablutGame implements Game<State, Action, String> {
 			return false;
 	}
 
-	/**
-	 * @return the movesWithoutCapturingWhite
-	 */
-	public int getMovesWithoutCapturingWhite() {
-		return movesWithoutCapturingWhite;
-	}
-
-	/**
-	 * @param movesWithoutCapturingWhite the movesWithoutCapturingWhite to set
-	 */
-	public void setMovesWithoutCapturingWhite(int movesWithoutCapturingWhite) {
-		this.movesWithoutCapturingWhite = movesWithoutCapturingWhite;
-	}
-
-	/**
-	 * @return the movesWithoutCapturingBlack
-	 */
-	public int getMovesWithoutCapturingBlack() {
-		return movesWithoutCapturingBlack;
-	}
-
-	/**
-	 * @param movesWithoutCapturingBlack the movesWithoutCapturingBlack to set
-	 */
-	public void setMovesWithoutCapturingBlack(int movesWithoutCapturingBlack) {
-		this.movesWithoutCapturingBlack = movesWithoutCapturingBlack;
-	}
-
 }
\ No newline at end of file
@@ -0,0 +1,97 @@
+package domain;
+
+import domain.State.Turn;
+
+/**
+ * Compact record of what an in-place move changed in a State, it is filled by TablutGame.makeMove
+ * and used by TablutGame.unmakeMove to take the move back. Search threads keep one record per ply
+ * and reuse it at every node.
+ */
+public class Undo {
+
+	/**
+	 * The move that has been made
+	 */
+	int move;
+	/**
+	 * Boxes of the pawns captured by the action
+	 */
+	final int[] captured = new int[4];
+	int numCaptured;
+	/**
+	 * Boxes of the pawns whose possible actions have been recomputed after the move, with their old actions
+	 */
+	final int[] updated = new int[32];
+	final int[] updatedActions = new int[32];
+	int numUpdated;
+
+	/*
+	 * Values of the state and of the game before the action
+	 */
+	Turn turn;
+	int lastMove;
+	int kingPosition;
+	int turnNumber;
+	int oldNumWhite, oldNumBlack;
+	/**
+	 * Moves without capturing of the player who made the move, saved only by the moves made with a GameContext
+	 */
+	int movesWithoutCapturing;
+
+	/**
+	 * Saves the values of the state that the specified move is going to change
+	 * @param state the state before the move
+	 * @param move the move to make
+	 */
+	void save(State state, int move) {
+		this.move = move;
+		this.numCaptured = 0;
+		this.numUpdated = 0;
+		this.turn = state.turn;
+		this.lastMove = state.lastMove;
+		this.kingPosition = state.currentKingPosition;
+		this.turnNumber = state.turnNumber;
+		this.oldNumWhite = state.oldNumWhite;
+		this.oldNumBlack = state.oldNumBlack;
+	}
+
+	/**
+	 * @param square box of a pawn captured by the action
+	 */
+	void addCaptured(int square) {
+		this.captured[this.numCaptured++] = square;
+	}
+
+	/**
+	 * @return {@code true} if the possible actions of the pawn in the box have already been recomputed
+	 */
+	boolean isUpdated(int square) {
+		for (int i = 0; i < this.numUpdated; i++)
+			if (this.updated[i] == square)
+				return true;
+		return false;
+	}
+
+	/**
+	 * @param square box of a pawn whose possible actions have been recomputed
+	 * @param actions the possible actions of the pawn before the move
+	 */
+	void addUpdated(int square, int actions) {
+		this.updated[this.numUpdated] = square;
+		this.updatedActions[this.numUpdated++] = actions;
+	}
+
+	/**
+	 * @return The move that has been made
+	 */
+	public int getMove() {
+		return this.move;
+	}
+
+	/**
+	 * @return The number of pawns captured by the action
+	 */
+	public int getNumCaptured() {
+		return this.numCaptured;
+	}
+}
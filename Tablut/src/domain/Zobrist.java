@@ -0,0 +1,69 @@
+package domain;
+
+import domain.Board.Pawn;
+import domain.State.Turn;
+
+/**
+ * Random keys used to compute the 64 bit Zobrist key of a state: the key is the xor of the keys of every pawn
+ * in its box and of the key of the player who has to move, so it can be updated incrementally when a pawn
+ * is moved or captured
+ */
+public final class Zobrist {
+
+	private static final long[] WHITE = new long[Board.SQUARES];
+	private static final long[] BLACK = new long[Board.SQUARES];
+	private static final long[] KING = new long[Board.SQUARES];
+	private static final long[] TURN = new long[Turn.values().length];
+
+	static {
+		// Fixed seed, the keys must be the same at every run
+		long seed = 0x5DEECE66DL;
+		for (int i = 0; i < Board.SQUARES; i++) {
+			WHITE[i] = seed = next(seed);
+			BLACK[i] = seed = next(seed);
+			KING[i] = seed = next(seed);
+		}
+		// The white turn has key 0 so the key of a board is also the key of the state with the white to move
+		for (Turn turn : Turn.values())
+			if (turn != Turn.WHITE)
+				TURN[turn.ordinal()] = seed = next(seed);
+	}
+
+	private Zobrist() {
+	}
+
+	/**
+	 * SplitMix64 generator step
+	 */
+	private static long next(long seed) {
+		long z = seed + 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * @param pawn a WHITE, BLACK or KING pawn
+	 * @param square the box of the pawn
+	 * @return The key of the pawn in the specified box, 0 for the other pawns
+	 */
+	public static long pawn(Pawn pawn, int square) {
+		switch (pawn) {
+		case WHITE:
+			return WHITE[square];
+		case BLACK:
+			return BLACK[square];
+		case KING:
+			return KING[square];
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * @return The key of the player who has to move
+	 */
+	public static long turn(Turn turn) {
+		return TURN[turn.ordinal()];
+	}
+}
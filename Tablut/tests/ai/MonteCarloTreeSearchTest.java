@@ -0,0 +1,55 @@
+package ai;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import domain.Action;
+import domain.Board;
+import domain.State;
+import domain.TablutGame;
+import domain.Board.Pawn;
+import domain.State.Turn;
+
+public class MonteCarloTreeSearchTest {
+	@Test
+	public void testFindsEscape() throws Exception {
+		Board board = Board.getEmptyBoard();
+		board.setPawn("c3", Pawn.KING);
+		board.setPawn("g7", Pawn.WHITE);
+		board.setPawn("a4", Pawn.BLACK);
+		board.setPawn("d1", Pawn.BLACK);
+		board.setPawn("i5", Pawn.BLACK);
+		State state = new State();
+		state.setBoard(board);
+		state.setTurn(Turn.WHITE);
+		state.updateCurrentKingPosition();
+		state.updatePossibleActions(Turn.WHITE);
+		state.updatePossibleActions(Turn.BLACK);
+		TablutGame game = new TablutGame();
+		MonteCarloTreeSearch search = new MonteCarloTreeSearch(game, TablutGame.minValue, TablutGame.maxValue, 1, 1,
+				TimeLimitedSearch.newWorkerPool(2), 2);
+		Action action = search.makeDecision(state);
+		state = game.makeMove(state, action);
+		Assert.assertEquals(Turn.WHITEWIN, state.getTurn());
+		Assert.assertTrue(search.getStatistics().getNodes() > 0);
+	}
+
+	@Test
+	public void testNoMoves() throws Exception {
+		Board board = Board.getEmptyBoard();
+		board.setPawn("b2", Pawn.KING);
+		board.setPawn("a2", Pawn.BLACK);
+		board.setPawn("c2", Pawn.BLACK);
+		board.setPawn("b1", Pawn.BLACK);
+		board.setPawn("b3", Pawn.BLACK);
+		State state = new State();
+		state.setBoard(board);
+		state.setTurn(Turn.WHITE);
+		state.updateCurrentKingPosition();
+		state.updatePossibleActions(Turn.WHITE);
+		state.updatePossibleActions(Turn.BLACK);
+		MonteCarloTreeSearch search = new MonteCarloTreeSearch(new TablutGame(), TablutGame.minValue,
+				TablutGame.maxValue, 1, 1, TimeLimitedSearch.newWorkerPool(1), 1);
+		Assert.assertNull(search.makeDecision(state));
+	}
+}
@@ -0,0 +1,46 @@
+package ai;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import domain.Move;
+import domain.State;
+import domain.TablutGame;
+import domain.Undo;
+
+public class MovePickerTest {
+	@Test
+	public void testAllMovesOnce() throws Exception {
+		TablutGame game = new TablutGame();
+		State state = new State();
+		MoveOrdering ordering = new MoveOrdering();
+		Random random = new Random(2);
+		int[] moves = new int[Move.MAX_MOVES], buffer = new int[Move.MAX_MOVES];
+		Undo undo = new Undo();
+		int previousMove = Move.NONE;
+		for (int ply = 0; ply < 200 && !game.isTerminal(state); ply++) {
+			int n = game.getMoves(state, moves);
+			int[] expected = Arrays.copyOf(moves, n);
+			Arrays.sort(expected);
+			//A random move as table move and another one as killer move, a move of the other player as counter move
+			int tableMove = moves[random.nextInt(n)];
+			ordering.update(state.getTurn(), moves[random.nextInt(n)], 0, 1, previousMove);
+			MovePicker picker = ordering.getPicker(0);
+			picker.init(game, state, buffer, tableMove, previousMove);
+			int[] picked = new int[n];
+			int numPicked = 0;
+			for (int move; (move = picker.next()) != Move.NONE; numPicked++) {
+				Assert.assertTrue(numPicked < n);
+				picked[numPicked] = move;
+			}
+			Assert.assertEquals(tableMove, picked[0]);
+			Arrays.sort(picked);
+			Assert.assertArrayEquals(expected, picked);
+			previousMove = moves[random.nextInt(n)];
+			game.makeMove(state, previousMove, undo);
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package ai;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import domain.Action;
+import domain.Board;
+import domain.Move;
+import domain.State;
+import domain.TablutGame;
+import domain.Board.Pawn;
+import domain.State.Turn;
+
+public class TimeLimitedSearchTest {
+	@Test
+	public void testPonderRootMoves() throws Exception {
+		TablutGame game = new TablutGame();
+		TimeLimitedSearch search = new TimeLimitedSearch(game, TablutGame.minValue, TablutGame.maxValue, 1, 16,
+				TimeLimitedSearch.newWorkerPool(1), 1);
+		State state = new State();
+		//Our move is made as the client makes it, only the possible actions of the opponent are updated
+		Action action = search.makeDecision(state);
+		state = game.makeMove(state, action);
+		state.updatePossibleActions(Turn.BLACK);
+		state.setTurn(Turn.BLACK);
+		State expected = search.getPonderState(state);
+		Assert.assertNotNull(expected);
+		int[] moves = new int[Move.MAX_MOVES];
+		int n = game.getMoves(expected, moves);
+		Assert.assertTrue(n > 0);
+		for (int i = 0; i < n; i++)
+			Assert.assertEquals(Move.toString(moves[i]), TablutGame.LEGAL, game.checkMove(expected, moves[i]));
+		//All the legal moves are generated
+		State fresh = expected.clone();
+		fresh.updatePossibleActions(Turn.WHITE);
+		fresh.updatePossibleActions(Turn.BLACK);
+		Assert.assertEquals(game.getMoves(fresh, new int[Move.MAX_MOVES]), n);
+	}
+
+	@Test
+	public void testNoMoves() throws Exception {
+		Board board = Board.getEmptyBoard();
+		board.setPawn("b2", Pawn.KING);
+		board.setPawn("a2", Pawn.BLACK);
+		board.setPawn("c2", Pawn.BLACK);
+		board.setPawn("b1", Pawn.BLACK);
+		board.setPawn("b3", Pawn.BLACK);
+		State state = new State();
+		state.setBoard(board);
+		state.setTurn(Turn.WHITE);
+		state.updateCurrentKingPosition();
+		state.updatePossibleActions(Turn.WHITE);
+		state.updatePossibleActions(Turn.BLACK);
+		TimeLimitedSearch search = new TimeLimitedSearch(new TablutGame(), TablutGame.minValue, TablutGame.maxValue,
+				1, 16, TimeLimitedSearch.newWorkerPool(1), 1);
+		Assert.assertNull(search.makeDecision(state));
+	}
+}
@@ -0,0 +1,43 @@
+package ai;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import domain.Action;
+import domain.Move;
+import domain.State.Turn;
+
+public class TranspositionTableTest {
+	@Test
+	public void testStoreAndProbe() throws Exception {
+		TranspositionTable table = new TranspositionTable(1);
+		long key = 0x123456789ABCDEFL;
+		int move = Move.fromAction(new Action("e4", "h4", Turn.WHITE));
+		Assert.assertEquals(0, table.probe(key));
+		table.store(key, 3, TranspositionTable.LOWER, -42, move);
+		long entry = table.probe(key);
+		Assert.assertEquals(3, TranspositionTable.getDepth(entry));
+		Assert.assertEquals(TranspositionTable.LOWER, TranspositionTable.getBound(entry));
+		Assert.assertEquals(-42, TranspositionTable.getScore(entry), 0);
+		Assert.assertEquals(move, TranspositionTable.getMove(entry));
+		Assert.assertEquals(0, table.probe(key ^ (1L << 60)));
+	}
+
+	@Test
+	public void testReplacement() throws Exception {
+		TranspositionTable table = new TranspositionTable(1);
+		long deep = 0x1000000000000001L, shallow = 0x2000000000000001L, other = 0x3000000000000001L;
+		table.store(deep, 6, TranspositionTable.EXACT, 1, 0);
+		table.store(shallow, 2, TranspositionTable.EXACT, 2, 0);
+		table.store(other, 1, TranspositionTable.EXACT, 3, 0);
+		//The deepest result is kept, the second entry of the bucket is always replaced
+		Assert.assertEquals(6, TranspositionTable.getDepth(table.probe(deep)));
+		Assert.assertEquals(0, table.probe(shallow));
+		Assert.assertEquals(3, TranspositionTable.getScore(table.probe(other)), 0);
+		//After a new search the old deep result can be replaced
+		table.newSearch();
+		table.store(shallow, 2, TranspositionTable.EXACT, 2, 0);
+		Assert.assertEquals(0, table.probe(deep));
+		Assert.assertEquals(2, TranspositionTable.getScore(table.probe(shallow)), 0);
+	}
+}
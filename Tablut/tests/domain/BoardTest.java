@@ -7,6 +7,8 @@ import org.junit.Before;
 import org.junit.Test;
 
 import domain.Board.Pawn;
+import domain.Board.Citadel;
+import domain.Board.Diagonal;
 import domain.Board.Position;
 
 public class BoardTest {
@@ -56,20 +58,97 @@ public class BoardTest {
 	@Test
 	public void testGetPawnNear(){
 		Board board = new Board();
-		assertTrue(board.getPawnDown("e5") == Pawn.WHITE);
-		assertTrue(board.getPawnUp("e5") == Pawn.WHITE);
-		assertTrue(board.getPawnLeft("e5") == Pawn.WHITE);
-		assertTrue(board.getPawnRight("e5") == Pawn.WHITE);
+		assertTrue(board.getPawnDown(Board.toSquare("e5")) == Pawn.WHITE);
+		assertTrue(board.getPawnUp(Board.toSquare("e5")) == Pawn.WHITE);
+		assertTrue(board.getPawnLeft(Board.toSquare("e5")) == Pawn.WHITE);
+		assertTrue(board.getPawnRight(Board.toSquare("e5")) == Pawn.WHITE);
 	}
 
 	@Test
 	public void testGetPositions(){
+		assertTrue(Board.getPosition(Board.toSquare("e5")) == Position.THRONE);
+		assertTrue(Board.getPosition(Board.toSquare("e1")) == Position.CITADEL);
+		assertTrue(Board.getPosition(Board.toSquare("e3")) == Position.STARTWHITE);
+		assertTrue(Board.getPosition(Board.toSquare("a1")) == null);
+		assertTrue(Board.getCitadel(Board.toSquare("b5")) == Citadel.LEFT);
+		assertTrue(Board.getCitadel(Board.toSquare("e8")) == Citadel.DOWN);
+		assertTrue((Board.getAttributes(Board.toSquare("a2")) & Board.ESCAPE) != 0);
+
+	}
+
+	@Test
+	public void testSetBoard(){
 		Board board = new Board();
-		assertTrue(board.getPositions().get("e5") == Position.THRONE);
-		assertTrue(board.getPositions().get("e1") == Position.CITADEL);
-		assertTrue(board.getPositions().get("e3") == Position.STARTWHITE);
-		
+		Pawn[][] pawns = board.getBoard();
+		pawns[4][4] = Pawn.THRONE;
+		pawns[2][2] = Pawn.KING;
+		this.board.setBoard(pawns);
+		assertTrue(this.board.getPawn("e5") == Pawn.EMPTY);
+		assertTrue(this.board.getPawn("c3") == Pawn.KING);
+		assertTrue(this.board.getPawn("a5") == Pawn.BLACK);
+		Assert.assertEquals(16, this.board.getNumBlack());
+		Assert.assertEquals(9, this.board.getNumWhite());
+	}
+
+	@Test
+	public void testHostileBoxes(){
+		this.board.setPawn("c3", Pawn.WHITE);
+		this.board.setPawn("g3", Pawn.BLACK);
+		assertTrue(this.board.isHostileToBlack(Board.toSquare("c3")));
+		assertTrue(this.board.isHostileToBlack(Board.toSquare("e5")));
+		assertTrue(this.board.isHostileToBlack(Board.toSquare("a4")));
+		assertTrue(!this.board.isHostileToBlack(Board.toSquare("a5")));
+		assertTrue(this.board.isHostileToWhite(Board.toSquare("a5")));
+		assertTrue(this.board.isHostileToWhite(Board.toSquare("g3")));
+		assertTrue(!this.board.isHostileToWhite(Board.toSquare("c3")));
+	}
+
+	@Test
+	public void testKingProtected(){
+		this.board.setPawn("e3", Pawn.KING);
+		this.board.setPawn("b2", Pawn.BLACK);
+		this.board.setPawn("c2", Pawn.WHITE);
+		assertTrue(this.board.kingProtectedUp(2, 4));
+		this.board.setPawn("h2", Pawn.BLACK);
+		assertTrue(!this.board.kingProtectedUp(2, 4));
+		assertTrue(this.board.kingProtectedDown(2, 4));
+	}
 
+	@Test
+	public void testDiagonals(){
+		this.board.setPawn("b3", Pawn.BLACK);
+		this.board.setPawn("c2", Pawn.BLACK);
+		assertTrue(this.board.isBlackDiagonal(Diagonal.LEFTUPBIG));
+		assertTrue(!this.board.isBlackDiagonal(Diagonal.LEFTUPSMALL));
+		assertTrue(this.board.isEmptyBehind(Diagonal.LEFTUPBIG));
+		this.board.setPawn("a1", Pawn.WHITE);
+		assertTrue(!this.board.isEmptyBehind(Diagonal.LEFTUPBIG));
+	}
+
+	@Test
+	public void testSpans(){
+		//A pawn in a citadel can move inside it but can't reach the opposite citadel
+		this.board.setPawn("d1", Pawn.BLACK);
+		int span = this.board.getColumnSpan(Board.toSquare("d1"));
+		Assert.assertEquals(0, Board.getFirst(span));
+		Assert.assertEquals(7, Board.getLast(span));
+		span = this.board.getRowSpan(Board.toSquare("d1"));
+		Assert.assertEquals(0, Board.getFirst(span));
+		Assert.assertEquals(8, Board.getLast(span));
+		//The throne can't be crossed
+		this.board.setPawn("a5", Pawn.BLACK);
+		span = this.board.getRowSpan(Board.toSquare("a5"));
+		Assert.assertEquals(0, Board.getFirst(span));
+		Assert.assertEquals(3, Board.getLast(span));
+		//The other pawns can't enter the citadels
+		this.board.setPawn("c5", Pawn.WHITE);
+		this.board.setPawn("c8", Pawn.BLACK);
+		span = this.board.getRowSpan(Board.toSquare("c5"));
+		Assert.assertEquals(2, Board.getFirst(span));
+		Assert.assertEquals(3, Board.getLast(span));
+		span = this.board.getColumnSpan(Board.toSquare("c5"));
+		Assert.assertEquals(0, Board.getFirst(span));
+		Assert.assertEquals(6, Board.getLast(span));
 	}
 
 }
\ No newline at end of file
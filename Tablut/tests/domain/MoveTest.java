@@ -0,0 +1,33 @@
+package domain;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import domain.State.Turn;
+
+public class MoveTest {
+	@Test
+	public void testPackedMove() throws IOException {
+		int move = Move.fromAction(new Action("e4", "h4", Turn.WHITE));
+		Assert.assertEquals(Board.toSquare("e4"), Move.getFrom(move));
+		Assert.assertEquals(Board.toSquare("h4"), Move.getTo(move));
+		Action action = Move.toAction(move, Turn.WHITE);
+		Assert.assertEquals("e4", action.getFrom());
+		Assert.assertEquals("h4", action.getTo());
+		Assert.assertEquals("e4-h4", Move.toString(move));
+	}
+
+	@Test
+	public void testGetMoves() throws IOException {
+		State state = new State();
+		int[] moves = new int[Move.MAX_MOVES];
+		int numMoves = state.getMoves(moves);
+		ArrayList<Action> actions = state.getActionList(Turn.WHITE);
+		Assert.assertEquals(actions.size(), numMoves);
+		for (int i = 0; i < numMoves; i++)
+			Assert.assertEquals(Move.fromAction(actions.get(i)), moves[i]);
+	}
+}
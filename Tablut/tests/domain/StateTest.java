@@ -1,9 +1,10 @@
 package domain;
 
 import static org.junit.Assert.assertFalse;
-import static org.junit.Assert.assertNotNull;
-import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
 import org.junit.Test;
 
 import domain.Board.Pawn;
@@ -30,15 +31,16 @@ public class StateTest {
 	public void testPossibleActions(){
 		Board board=Board.getEmptyBoard();
 		state.setBoard(board);
-		state.eatenUpdate(board, Turn.WHITE);
 		board.setPawn("e3", Pawn.KING);
-		state.getPossibleWhiteActions().put("e3", null);
-		state.eatenUpdate(board, Turn.BLACK);
 		state.updatePossibleActions(Turn.WHITE);
-		assertTrue(state.getPossibleWhiteActions().keySet().size() == 1);
-		assertTrue(state.getPossibleBlackActions().keySet().size() == 0);
-		for (String to : state.getPossibleWhiteActions().get("e3"))
-				System.out.println(to);
+		state.updatePossibleActions(Turn.BLACK);
+		int[] moves = new int[Move.MAX_MOVES];
+		assertTrue(state.getMoves(Turn.WHITE, moves) == 9);
+		assertTrue(state.getMoves(Turn.BLACK, moves) == 0);
+		assertTrue(state.isPossibleAction(Board.toSquare("e3"), Board.toSquare("e4")));
+		assertFalse(state.isPossibleAction(Board.toSquare("e3"), Board.toSquare("e5")));
+		for (Action action : state.getActionList(Turn.WHITE))
+				System.out.println(action.getTo());
 	}
 
 	@Test
@@ -57,30 +59,41 @@ public class StateTest {
 
 	@Test
 	public void testChangeCurrentKingPositionAndHashMap(){
-		assertTrue(state.getCurrentKingPosition().equals("e5"));
-		state.setCurrentKingPosition("e3");
-		assertTrue(state.getCurrentKingPosition().equals("e3"));
-		assertNotNull(state.getPossibleWhiteActions().get("e4"));
+		assertTrue(state.getCurrentKingPosition() == Board.toSquare("e5"));
+		state.setCurrentKingPosition(Board.toSquare("e3"));
+		assertTrue(state.getCurrentKingPosition() == Board.toSquare("e3"));
+		assertTrue(state.isPossibleAction(Board.toSquare("e4"), Board.toSquare("f4")));
 
-		State change = new State();
-		change.updatePossibleActionsKeySet("e4", "f4", Turn.WHITE);
+		State change = state.clone();
+		change.getBoard().setPawn("e4", Pawn.EMPTY);
+		change.getBoard().setPawn("f4", Pawn.WHITE);
 		change.updatePossibleActions(Turn.WHITE);
-		state.setPossibleWhiteActions(change.getPossibleWhiteActions());
-		assertNotNull(state.getPossibleWhiteActions().get("f4"));
-
-		state.updatePossibleActionsKeySet("f4", "e4", Turn.WHITE);
-		state.updatePossibleActions(Turn.WHITE);
-		assertNull(change.getPossibleWhiteActions().get("f4"));
+		assertTrue(change.isPossibleAction(Board.toSquare("f4"), Board.toSquare("f2")));
+		assertFalse(state.isPossibleAction(Board.toSquare("f4"), Board.toSquare("f2")));
 
 		change.currentKingPosition = state.currentKingPosition;
-		assertTrue(change.currentKingPosition.equals("e3"));
-		change.currentKingPosition = "e4";
-		assertTrue(state.currentKingPosition.equals("e3"));
-		//Dopo questi test si capisce che le stringhe non subiscono variazioni, come variabili primitive, le hashmap invece si
+		assertTrue(change.currentKingPosition == Board.toSquare("e3"));
+		change.currentKingPosition = Board.toSquare("e4");
+		assertTrue(state.currentKingPosition == Board.toSquare("e3"));
+		//Dopo questi test si capisce che il clone non condivide le azioni possibili con lo stato originale
 	}
 
-	
-	
+	@Test
+	public void testKeyOfTranspositions() throws IOException {
+		TablutGame game = new TablutGame();
+		State first = game.getResult(state, new Action("c5", "c3", Turn.WHITE));
+		first = game.getResult(first, new Action("a4", "a3", Turn.BLACK));
+		first = game.getResult(first, new Action("g5", "g3", Turn.WHITE));
+		State second = game.getResult(state, new Action("g5", "g3", Turn.WHITE));
+		second = game.getResult(second, new Action("a4", "a3", Turn.BLACK));
+		second = game.getResult(second, new Action("c5", "c3", Turn.WHITE));
+		assertTrue(first.getKey() == second.getKey());
+		assertTrue(first.hashCode() == second.hashCode());
+		assertTrue(first.equals(second));
 
+		second.setTurn(Turn.WHITE);
+		assertFalse(first.getKey() == second.getKey());
+		assertFalse(first.equals(second));
+	}
 
 }
\ No newline at end of file
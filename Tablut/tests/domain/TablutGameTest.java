@@ -2,10 +2,14 @@ package domain;
 
 import static org.junit.Assert.assertTrue;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
 import org.junit.Test;
 
 import domain.Board.Pawn;
 import domain.State.Turn;
+import exceptions.ThroneException;
 
 public class TablutGameTest {
 	State state = new State();
@@ -26,7 +30,136 @@ public class TablutGameTest {
 		assertTrue(state.getBoard().getPawn("d4") == Pawn.EMPTY);
 		assertTrue(state.getBoard().getPawn("b4") == Pawn.EMPTY);	
 	}
-	
 
+	@Test
+	public void testMakeAndUnmakeMove() throws IOException {
+		Board board = Board.getEmptyBoard();
+		board.setPawn("a4", Pawn.BLACK);
+		board.setPawn("b4", Pawn.BLACK);
+		board.setPawn("d4", Pawn.WHITE);
+		board.setPawn("e3", Pawn.KING);
+		state.setBoard(board);
+		state.updateCurrentKingPosition();
+		state.updatePossibleActions(Turn.WHITE);
+		state.updatePossibleActions(Turn.BLACK);
+		state.setTurn(Turn.WHITE);
+		State before = state.clone();
+
+		Undo undo = new Undo();
+		game.makeMove(state, new Action("d4", "c4", Turn.WHITE), undo);
+		assertTrue(state.getBoard().getPawn("b4") == Pawn.EMPTY);
+		assertTrue(state.getTurn() == Turn.BLACK);
+		assertTrue(state.getNumBlack() == 1);
+		assertTrue(undo.getNumCaptured() == 1);
+
+		game.unmakeMove(state, undo);
+		assertTrue(state.equals(before));
+		assertTrue(state.getNumBlack() == 2);
+		assertTrue(state.isPossibleAction(Board.toSquare("d4"), Board.toSquare("c4")));
+		assertTrue(state.getCurrentKingPosition() == before.getCurrentKingPosition());
+	}
+
+	@Test
+	public void testPossibleActionsAfterMove() throws IOException {
+		Undo undo = new Undo();
+		game.makeMove(state, new Action("e3", "b3", Turn.WHITE), undo);
+		game.makeMove(state, new Action("d1", "d3", Turn.BLACK), new Undo());
+		//Only some pawns have been updated, the moves must be the same as the recomputed ones
+		State recomputed = state.clone();
+		recomputed.updatePossibleActions(Turn.WHITE);
+		recomputed.updatePossibleActions(Turn.BLACK);
+		for (Turn turn : new Turn[] { Turn.WHITE, Turn.BLACK }) {
+			int[] moves = new int[Move.MAX_MOVES];
+			int[] expected = new int[Move.MAX_MOVES];
+			int n = state.getMoves(turn, moves);
+			assertTrue(n == recomputed.getMoves(turn, expected));
+			assertTrue(Arrays.equals(moves, expected));
+		}
+	}
+
+	@Test
+	public void testCheckMove() throws IOException {
+		int[] moves = new int[Move.MAX_MOVES];
+		int n = state.getMoves(moves);
+		for (int i = 0; i < n; i++)
+			assertTrue(game.checkMove(state, moves[i]) == TablutGame.LEGAL);
+		assertTrue(game.checkMove(state, Move.of(Board.toSquare("e4"), Board.toSquare("e5"))) == TablutGame.THRONE);
+		assertTrue(game.checkMove(state, Move.of(Board.toSquare("e3"), Board.toSquare("e2"))) == TablutGame.OCCUPIED);
+		assertTrue(game.checkMove(state, Move.of(Board.toSquare("c5"), Board.toSquare("c9"))) == TablutGame.LEGAL);
+		assertTrue(game.checkMove(state, Move.of(Board.toSquare("c5"), Board.toSquare("b6"))) == TablutGame.DIAGONAL);
+		assertTrue(game.checkMove(state, Move.of(Board.toSquare("a4"), Board.toSquare("a3"))) == TablutGame.PAWN);
+		assertTrue(game.checkMove(state, Move.of(Board.toSquare("d5"), Board.toSquare("d9"))) == TablutGame.OCCUPIED);
+		state.getBoard().setPawn("d9", Pawn.EMPTY);
+		assertTrue(game.checkMove(state, Move.of(Board.toSquare("d5"), Board.toSquare("d9"))) == TablutGame.CITADEL);
+		state.setTurn(Turn.BLACK);
+		assertTrue(game.checkMove(state, Move.of(Board.toSquare("a4"), Board.toSquare("a7"))) == TablutGame.CLIMBING);
+		state.setTurn(Turn.WHITE);
+		try {
+			game.checkAction(state, new Action("e4", "e5", Turn.WHITE));
+			assertTrue(false);
+		} catch (Exception e) {
+			assertTrue(e instanceof ThroneException);
+		}
+	}
+
+	@Test
+	public void testIsCapture() throws IOException {
+		Random random = new Random(0);
+		int[] moves = new int[Move.MAX_MOVES];
+		Undo undo = new Undo();
+		for (int ply = 0; ply < 200 && !game.isTerminal(state); ply++) {
+			int n = state.getMoves(moves);
+			for (int i = 0; i < n; i++) {
+				boolean capture = game.isCapture(state, moves[i]);
+				game.makeMove(state, moves[i], undo);
+				assertTrue(capture == (undo.getNumCaptured() > 0));
+				game.unmakeMove(state, undo);
+			}
+			game.makeMove(state, moves[random.nextInt(n)], undo);
+		}
+	}
+
+	@Test
+	public void testGetTacticalMoves() throws IOException {
+		Random random = new Random(1);
+		int[] moves = new int[Move.MAX_MOVES], tactical = new int[Move.MAX_MOVES];
+		long[] target = new long[2];
+		Undo undo = new Undo();
+		for (int ply = 0; ply < 200 && !game.isTerminal(state); ply++) {
+			int n = state.getMoves(moves);
+			int numTactical = game.getTacticalMoves(state, tactical, target);
+			int[] found = Arrays.copyOf(tactical, numTactical);
+			Arrays.sort(found);
+			int expected = 0;
+			for (int i = 0; i < n; i++) {
+				Board board = state.getBoard();
+				int to = Move.getTo(moves[i]);
+				game.makeMove(state, moves[i], undo);
+				boolean isTactical = undo.getNumCaptured() > 0 || state.getTurn() == Turn.BLACKWIN
+						|| state.getTurn() == Turn.WHITEWIN || (board.isKing(to) && TablutGame.seesEscape(board, to, -1));
+				game.unmakeMove(state, undo);
+				if (isTactical) {
+					expected++;
+					assertTrue(Arrays.binarySearch(found, moves[i]) >= 0);
+				}
+			}
+			assertTrue(expected == numTactical);
+			game.makeMove(state, moves[random.nextInt(n)], undo);
+		}
+	}
+
+	@Test
+	public void testMovesWithoutCapturing() throws IOException {
+		GameContext context = new GameContext();
+		Undo white = new Undo(), black = new Undo();
+		game.makeMove(context, state, Move.fromAction(new Action("e3", "b3", Turn.WHITE)), white);
+		game.makeMove(context, state, Move.fromAction(new Action("d1", "d3", Turn.BLACK)), black);
+		assertTrue(context.getMovesWithoutCapturingWhite() == 1);
+		assertTrue(context.getMovesWithoutCapturingBlack() == 1);
+		game.unmakeMove(context, state, black);
+		game.unmakeMove(context, state, white);
+		assertTrue(context.getMovesWithoutCapturingWhite() == 0);
+		assertTrue(context.getMovesWithoutCapturingBlack() == 0);
+	}
 
 }
\ No newline at end of file